@@ -1,13 +1,23 @@
 package com.transcriber;
 
 import com.transcriber.audio.AudioRecorder;
-import com.transcriber.cloud.GCloudTranscriber;
+import com.transcriber.cloud.InProgressTranscription;
+import com.transcriber.cloud.SegmentedTranscription;
+import com.transcriber.cloud.StreamingTranscription;
 import com.transcriber.config.Config;
 import com.transcriber.file.FileManager;
-import com.transcriber.template.TemplateManager;
+import com.transcriber.file.TranscriptionIndex;
+import com.transcriber.file.TranscriptionMigrator;
+import com.transcriber.file.WordTimings;
+import com.transcriber.job.TranscriptionJob;
+import com.transcriber.job.TranscriptionQueue;
+import com.transcriber.search.SearchIndex;
+import com.transcriber.search.SearchQuery;
+import com.transcriber.template.TemplateRegistry;
+import com.transcriber.text.IncrementalCleaner;
+import com.transcriber.text.NormalizationDictionary;
 import com.transcriber.text.TranscriptionCleaner;
 import javafx.application.Platform;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -17,9 +27,10 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Main JavaFX GUI application for the Medical Transcriber.
@@ -28,13 +39,29 @@ public class TranscriberApp extends javafx.application.Application {
     
     private AudioRecorder recorder;
     private Path currentRecording;
-    private Path currentTranscriptionFile;
-    private Map<String, Path> templates;
-    private Thread transcribeThread;
+    // Read by the migrator thread, which leaves the loaded file where it is
+    private volatile Path currentTranscriptionFile;
+    // Word timings of the loaded file, opened on first use, and the text their offsets refer to
+    private WordTimings wordTimings;
+    private String timedText;
+    // Templates directory, reloaded in the background when it changes
+    private TemplateRegistry templateRegistry;
+    // Transcription files, kept up to date in the background
+    private TranscriptionIndex transcriptionIndex;
+    // Full-text index of the transcriptions
+    private SearchIndex searchIndex;
+    // Moves transcriptions into the sharded layout, if enabled
+    private TranscriptionMigrator transcriptionMigrator;
+    private TranscriptionQueue transcriptionQueue;
+    private TranscriptionJob lastSubmittedJob;
+    private final Map<Path, InProgressTranscription> pendingTranscriptions = new ConcurrentHashMap<>();
+    // Paragraphs edited since the last clean
+    private IncrementalCleaner editorCleaner;
     
     // UI Components
     private TextField patientField;
     private TextField dobField;
+    private TextField searchField;
     private ComboBox<String> templateCombo;
     private Label statusLabel;
     private Button recordButton;
@@ -44,13 +71,38 @@ public class TranscriberApp extends javafx.application.Application {
     private Button saveButton;
     private Button cleanButton;
     private Button deleteTranscriptionButton;
-    private ListView<String> fileListView;
+    private Button uncertainWordButton;
+    private CheckBox liveCheckBox;
+    private TranscriptionBrowser fileBrowser;
+    private ListView<TranscriptionJob> jobListView;
     private TextArea textEditor;
     
     @Override
     public void start(Stage primaryStage) {
         recorder = new AudioRecorder();
-        templates = TemplateManager.loadTemplates();
+        AudioRecorder.recoverRecordings();
+        templateRegistry = new TemplateRegistry(templates -> Platform.runLater(() -> updateTemplateChoices(templates)));
+        searchIndex = new SearchIndex(Config.TRANSCRIPTIONS_DIR, Config.SEARCH_INDEX_FILE);
+        FileManager.setChangeListener(searchIndex);
+        transcriptionIndex = new TranscriptionIndex(Config.TRANSCRIPTIONS_DIR, Config.TRANSCRIPTION_INDEX_FILE,
+                this::refreshFileList);
+        if (Config.SHARDED_TRANSCRIPTIONS) {
+            transcriptionMigrator = new TranscriptionMigrator(Config.TRANSCRIPTIONS_DIR, transcriptionIndex,
+                    file -> file.equals(currentTranscriptionFile));
+        }
+        editorCleaner = new IncrementalCleaner(TranscriptionCleaner.defaultCleaner(), NormalizationDictionary.load());
+        transcriptionQueue = new TranscriptionQueue(Config.TRANSCRIPTION_CONCURRENCY,
+                Config.TRANSCRIPTION_QUEUE_CAPACITY, new TranscriptionQueue.Listener() {
+                    @Override
+                    public void jobUpdated(TranscriptionJob job) {
+                        Platform.runLater(() -> jobListView.refresh());
+                    }
+                    
+                    @Override
+                    public void jobFinished(TranscriptionJob job) {
+                        Platform.runLater(() -> TranscriberApp.this.jobFinished(job));
+                    }
+                });
         
         primaryStage.setTitle("Medical Transcriber");
         primaryStage.setWidth(1100);
@@ -75,8 +127,37 @@ public class TranscriberApp extends javafx.application.Application {
         primaryStage.setTitle("Transcription Manager");
         primaryStage.show();
     
-        // Refresh file list after window is shown
-        Platform.runLater(this::refreshFileList);
+        // Finish transcriptions interrupted by the last exit
+        List<TranscriptionJob> resumed = transcriptionQueue.resumeInterrupted();
+        if (!resumed.isEmpty()) {
+            jobListView.getItems().addAll(resumed);
+            setStatus(String.format("Resuming %d transcription(s) from last session", resumed.size()));
+        }
+    }
+    
+    @Override
+    public void stop() {
+        if (transcriptionMigrator != null) {
+            transcriptionMigrator.close();
+        }
+        templateRegistry.close();
+        transcriptionIndex.close();
+        FileManager.setChangeListener(null);
+        searchIndex.close();
+    }
+    
+    /**
+     * Show the current templates in the template choice, keeping the selection if
+     * that template still exists.
+     */
+    private void updateTemplateChoices(Map<String, Path> templates) {
+        String selected = templateCombo.getSelectionModel().getSelectedItem();
+        templateCombo.getItems().setAll(templates.keySet());
+        if (selected != null && templates.containsKey(selected)) {
+            templateCombo.getSelectionModel().select(selected);
+        } else {
+            templateCombo.getSelectionModel().selectFirst();
+        }
     }
     
     private GridPane createTopPanel() {
@@ -116,7 +197,7 @@ public class TranscriberApp extends javafx.application.Application {
         // Template
         grid.add(new Label("Template:"), 4, 0);
         templateCombo = new ComboBox<>();
-        templateCombo.getItems().addAll(templates.keySet());
+        templateCombo.getItems().addAll(templateRegistry.snapshot().keySet());
         templateCombo.getSelectionModel().selectFirst();
         templateCombo.setPrefWidth(150);
         grid.add(templateCombo, 5, 0);
@@ -152,8 +233,17 @@ public class TranscriberApp extends javafx.application.Application {
         deleteTranscriptionButton = new Button("Delete Transcription");
         deleteTranscriptionButton.setOnAction(e -> deleteTranscription());
     
+        uncertainWordButton = new Button("Next Uncertain Word");
+        uncertainWordButton.setTooltip(new Tooltip("Select the next word the recognizer was unsure of"));
+        uncertainWordButton.setOnAction(e -> selectNextUncertainWord());
+    
+        liveCheckBox = new CheckBox("Live");
+        liveCheckBox.setTooltip(new Tooltip("Stream audio to Google while recording and show the transcript live"));
+        liveCheckBox.setSelected(Config.LIVE_TRANSCRIPTION);
+    
         buttonBox.getChildren().addAll(recordButton, stopButton, sendToGoogleButton,
-                deleteRecordingButton, saveButton, cleanButton, deleteTranscriptionButton);
+                deleteRecordingButton, saveButton, cleanButton, deleteTranscriptionButton, uncertainWordButton,
+                liveCheckBox);
     
         // Make button row span all columns
         grid.add(buttonBox, 0, 1, 7, 1);
@@ -172,17 +262,31 @@ public class TranscriberApp extends javafx.application.Application {
         leftPanel.setMaxWidth(350);
         
         Label leftTitle = new Label("Transcriptions");
+        
+        searchField = new TextField();
+        searchField.setPromptText("Search: words, \"phrase\", pre*, patient:, from:, to:");
+        searchField.setOnAction(e -> searchTranscriptions());
     
-        fileListView = new ListView<>();
-        VBox.setVgrow(fileListView, Priority.ALWAYS);
+        fileBrowser = new TranscriptionBrowser(entry -> loadSelectedFile(entry.fileName()));
+        fileBrowser.setSource(transcriptionIndex::list);
+        VBox.setVgrow(fileBrowser, Priority.ALWAYS);
     
-        fileListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null) {
-                loadSelectedFile(newVal);
+        // Transcription jobs with their progress; double-click a finished job to open it
+        Label jobsTitle = new Label("Transcription Jobs");
+        
+        jobListView = new ListView<>();
+        jobListView.setPrefHeight(140);
+        jobListView.setOnMouseClicked(e -> {
+            TranscriptionJob job = jobListView.getSelectionModel().getSelectedItem();
+            if (e.getClickCount() == 2 && job != null && job.getTranscriptionFile() != null) {
+                fileBrowser.select(job.getTranscriptionFile().getFileName().toString());
             }
         });
+        
+        Button clearJobsButton = new Button("Clear Finished");
+        clearJobsButton.setOnAction(e -> jobListView.getItems().removeIf(TranscriptionJob::isFinished));
     
-        leftPanel.getChildren().addAll(leftTitle, fileListView);
+        leftPanel.getChildren().addAll(leftTitle, searchField, fileBrowser, jobsTitle, jobListView, clearJobsButton);
     
         // Center panel - Text editor
         VBox centerPanel = new VBox(8);
@@ -196,6 +300,17 @@ public class TranscriberApp extends javafx.application.Application {
         textEditor.setWrapText(true);
         textEditor.setPrefRowCount(28);
         textEditor.setPrefColumnCount(100);
+        // Track edited ranges so cleaning only revisits the paragraphs that changed
+        textEditor.setTextFormatter(new TextFormatter<>(change -> {
+            // Caret and selection moves pass through here too
+            if (!change.isContentChange()) {
+                return change;
+            }
+            int start = change.getRangeStart();
+            int end = change.getRangeEnd();
+            editorCleaner.edited(start, end, end > start ? textEditor.getText(start, end) : "", change.getText());
+            return change;
+        }));
         VBox.setVgrow(textEditor, Priority.ALWAYS);
     
         centerPanel.getChildren().addAll(editorLabel, textEditor);
@@ -218,10 +333,38 @@ public class TranscriberApp extends javafx.application.Application {
     }
     
     private void startRecord() {
+        // The previous recording was not sent; stop transcribing it
+        if (currentRecording != null) {
+            InProgressTranscription previous = pendingTranscriptions.remove(currentRecording);
+            if (previous != null) {
+                previous.close();
+            }
+        }
+        String patient = patientField.getText().trim();
+        StreamingTranscription live = null;
+        SegmentedTranscription segments = null;
+        if (liveCheckBox.isSelected()) {
+            // Stream audio to the recognizer and show results in the editor as they arrive
+            live = new StreamingTranscription(patient, this::showLiveTranscript);
+            currentTranscriptionFile = null;
+            setEditorText("");
+        } else if (Config.SEGMENT_SECONDS > 0) {
+            // Transcribe segments in the background while dictation continues
+            segments = new SegmentedTranscription(patient, this::setStatus);
+        }
+        InProgressTranscription pending = live != null ? live : segments;
+        recorder.setAudioListener(live);
+        recorder.setSegmentListener(segments);
         try {
             currentRecording = recorder.start();
+            if (pending != null) {
+                pendingTranscriptions.put(currentRecording, pending);
+            }
             setStatus("Recording → " + currentRecording.getFileName());
         } catch (Exception e) {
+            if (pending != null) {
+                pending.close();
+            }
             showError("Recording Error", e.getMessage());
         }
     }
@@ -229,10 +372,27 @@ public class TranscriberApp extends javafx.application.Application {
     private void stopRecord() {
         Path recording = recorder.stop();
         if (recording != null) {
-            setStatus("Recording stopped");
+            if (recorder.getOverrunBytes() > 0) {
+                setStatus(String.format("Recording stopped (%d bytes of audio dropped)", recorder.getOverrunBytes()));
+            } else {
+                setStatus("Recording stopped");
+            }
+            // A live transcript is already complete, so finish it right away
+            if (pendingTranscriptions.get(recording) instanceof StreamingTranscription) {
+                triggerTranscription();
+            }
         }
     }
     
+    private void showLiveTranscript(String finalText, String interimText) {
+        String text = interimText.isEmpty() ? finalText
+                : finalText.isEmpty() ? interimText : finalText + "\n" + interimText;
+        Platform.runLater(() -> {
+            setEditorText(text);
+            textEditor.positionCaret(text.length());
+        });
+    }
+    
     private void deleteRecording() {
         // Check if recordings directory exists and has files
         if (!Files.exists(Config.RECORDINGS_DIR)) {
@@ -242,10 +402,12 @@ public class TranscriberApp extends javafx.application.Application {
         
         // List all files in recordings directory
         List<Path> recordingFiles;
+        Set<Path> queued = transcriptionQueue.getActiveRecordings();
         try {
             recordingFiles = new java.util.ArrayList<>();
             try (var stream = Files.list(Config.RECORDINGS_DIR)) {
                 stream.filter(Files::isRegularFile)
+                      .filter(file -> !belongsToJob(file, queued))
                       .forEach(recordingFiles::add);
             }
         } catch (IOException e) {
@@ -254,7 +416,8 @@ public class TranscriberApp extends javafx.application.Application {
         }
         
         if (recordingFiles.isEmpty()) {
-            showInfo("No Recordings", "No recording files found to delete.");
+            showInfo("No Recordings", queued.isEmpty() ? "No recording files found to delete."
+                    : "The only recordings left are queued for transcription.");
             currentRecording = null;
             return;
         }
@@ -273,6 +436,10 @@ public class TranscriberApp extends javafx.application.Application {
             patient = "unknown";
         }
         
+        // Abandon in-progress transcriptions of the recordings being deleted
+        pendingTranscriptions.values().forEach(InProgressTranscription::close);
+        pendingTranscriptions.clear();
+        
         // Securely delete all recording files
         int deletedCount = 0;
         for (Path recordingFile : recordingFiles) {
@@ -288,11 +455,23 @@ public class TranscriberApp extends javafx.application.Application {
         setStatus(String.format("Deleted %d recording file(s)", deletedCount));
     }
     
-    private void triggerTranscription() {
-        if (transcribeThread != null && transcribeThread.isAlive()) {
-            showInfo("In Progress", "Transcription already running.");
-            return;
+    /**
+     * Whether a file in the recordings directory is a queued recording or one of its segments.
+     */
+    private static boolean belongsToJob(Path file, Set<Path> queued) {
+        String name = file.getFileName().toString();
+        for (Path recording : queued) {
+            String recordingName = recording.getFileName().toString();
+            int lastDot = recordingName.lastIndexOf('.');
+            String base = lastDot > 0 ? recordingName.substring(0, lastDot) : recordingName;
+            if (name.equals(recordingName) || name.startsWith(base + "_seg")) {
+                return true;
+            }
         }
+        return false;
+    }
+    
+    private void triggerTranscription() {
         if (currentRecording == null || !currentRecording.toFile().exists()) {
             showError("No recording", "Please record audio first.");
             return;
@@ -307,51 +486,47 @@ public class TranscriberApp extends javafx.application.Application {
             showError("Missing info", "DOB is required before transcription.");
             return;
         }
-        currentTranscriptionFile = null; // prepare for new transcription result
         
-        Path recordingToProcess = currentRecording;
-        transcribeThread = new Thread(() -> runTranscription(recordingToProcess, patient, dob), "TranscriptionThread");
-        transcribeThread.setDaemon(true);
-        transcribeThread.start();
+        Path recording = currentRecording;
+        Path templatePath = templateRegistry.snapshot().get(templateCombo.getSelectionModel().getSelectedItem());
+        InProgressTranscription pending = pendingTranscriptions.remove(recording);
+        TranscriptionJob job;
+        try {
+            job = transcriptionQueue.submit(recording, patient, dob, templatePath, pending);
+        } catch (IllegalStateException e) {
+            if (pending != null) {
+                pendingTranscriptions.put(recording, pending);
+            }
+            showInfo("Transcription Queue", e.getMessage());
+            return;
+        }
+        // The job owns the recording now; the next dictation can start right away
+        currentRecording = null;
+        lastSubmittedJob = job;
+        jobListView.getItems().add(job);
+        setStatus(String.format("Queued transcription #%d (%d active)", job.getId(), 
+                transcriptionQueue.getActiveCount()));
     }
     
-    private void runTranscription(Path recording, String patient, String dob) {
-        try {
-            String transcript = GCloudTranscriber.uploadAndTranscribe(recording, patient, this::setStatus);
-            
-            String templateName = templateCombo.getSelectionModel().getSelectedItem();
-            Path templatePath = templates.get(templateName);
-            
-            Map<String, String> context = new HashMap<>();
-            context.put("PATIENT", patient);
-            context.put("DOB", dob);
-            
-            String finalText;
-            if (templatePath != null) {
-                finalText = TemplateManager.applyTemplate(templatePath, transcript, context);
+    /**
+     * Show a finished job's result; called on the JavaFX thread.
+     */
+    private void jobFinished(TranscriptionJob job) {
+        jobListView.refresh();
+        if (job.getState() == TranscriptionJob.State.COMPLETED) {
+            transcriptionIndex.update(job.getTranscriptionFile());
+            String fileName = job.getTranscriptionFile().getFileName().toString();
+            // Open the newest job's result unless the editor holds another file
+            if (job == lastSubmittedJob && currentTranscriptionFile == null) {
+                refreshFileList(fileName);
             } else {
-                finalText = transcript;
-            }
-            
-            Path savedPath = saveNewTranscription(finalText, patient, dob);
-            if (recording != null) {
-                FileManager.secureDelete(recording, patient);
+                refreshFileList();
             }
-            currentRecording = null;
-            
-            Platform.runLater(() -> {
-                textEditor.clear();
-                textEditor.appendText(finalText);
-                currentTranscriptionFile = savedPath;
-                refreshFileList(savedPath.getFileName().toString());
-                setStatus("Transcription saved to " + savedPath.getFileName());
-            });
-            
-        } catch (Exception e) {
-            Platform.runLater(() -> {
-                showError("Transcription Error", e.getMessage());
-                setStatus("Transcription failed");
-            });
+            setStatus("Transcription saved to " + fileName);
+        } else if (job.getState() == TranscriptionJob.State.FAILED) {
+            showError("Transcription Error", String.format("Transcription #%d (%s) failed: %s", 
+                    job.getId(), job.getPatient(), job.getError()));
+            setStatus("Transcription #" + job.getId() + " failed");
         }
     }
     
@@ -365,7 +540,11 @@ public class TranscriberApp extends javafx.application.Application {
         // If a file is currently loaded, overwrite it
         if (currentTranscriptionFile != null) {
             try {
+                // The migrator may have moved it just as it was opened
+                currentTranscriptionFile = FileManager.locateTranscription(currentTranscriptionFile);
                 FileManager.saveTranscription(currentTranscriptionFile, content);
+                transcriptionIndex.update(currentTranscriptionFile);
+                updateWordTimings(content);
                 refreshFileList(currentTranscriptionFile.getFileName().toString());
                 setStatus("Saved " + currentTranscriptionFile.getFileName());
             } catch (Exception e) {
@@ -384,6 +563,8 @@ public class TranscriberApp extends javafx.application.Application {
         try {
             Path path = saveNewTranscription(content, patient, dob);
             currentTranscriptionFile = path;
+            wordTimings = null;
+            timedText = null;
             refreshFileList(path.getFileName().toString());
             setStatus("Saved " + path.getFileName());
             
@@ -400,6 +581,7 @@ public class TranscriberApp extends javafx.application.Application {
     private Path saveNewTranscription(String content, String patient, String dob) throws IOException {
         Path path = FileManager.generateFilename(patient, dob);
         FileManager.saveTranscription(path, content);
+        transcriptionIndex.update(path);
         return path;
     }
     
@@ -408,58 +590,171 @@ public class TranscriberApp extends javafx.application.Application {
     }
 
     private void refreshFileList(String fileToSelect) {
-        Platform.runLater(() -> {
-            fileListView.getItems().clear();
-            List<Path> files = FileManager.listTranscriptions();
-            for (Path file : files) {
-                fileListView.getItems().add(file.getFileName().toString());
-            }
-            if (fileToSelect != null) {
-                selectFileInListInternal(fileToSelect);
-            }
-        });
+        Platform.runLater(() -> fileBrowser.refresh(fileToSelect));
     }
-
-    private void selectFileInListInternal(String fileName) {
-        ObservableList<String> items = fileListView.getItems();
-        for (int i = 0; i < items.size(); i++) {
-            if (items.get(i).equals(fileName)) {
-                fileListView.getSelectionModel().select(i);
-                fileListView.scrollTo(i);
-                break;
-            }
+    
+    /**
+     * List the transcriptions matching the search field, or all of them if it is empty.
+     */
+    private void searchTranscriptions() {
+        String text = searchField.getText().trim();
+        SearchQuery query;
+        try {
+            query = text.isEmpty() ? null : SearchQuery.parse(text);
+        } catch (IllegalArgumentException e) {
+            showError("Search", e.getMessage());
+            return;
+        }
+        if (query == null || query.isEmpty()) {
+            fileBrowser.setSource(transcriptionIndex::list);
+            setStatus("Showing all transcriptions");
+        } else if (!searchIndex.isReady()) {
+            setStatus("Search index is still being built; search again shortly");
+        } else {
+            fileBrowser.setSource(() -> searchIndex.search(query));
+            setStatus("Showing transcriptions matching: " + text);
         }
     }
     
     private void loadSelectedFile(String fileName) {
-        List<Path> files = FileManager.listTranscriptions();
-        for (Path file : files) {
-            if (file.getFileName().toString().equals(fileName)) {
-                try {
-                    String content = FileManager.loadTranscription(file);
-                    textEditor.clear();
-                    textEditor.appendText(content);
-                    currentTranscriptionFile = file;
-                    setStatus("Loaded " + fileName);
-                } catch (Exception e) {
-                    showError("Load Error", e.getMessage());
-                }
-                break;
-            }
+        TranscriptionIndex.Entry entry = transcriptionIndex.find(fileName);
+        if (entry == null) {
+            return;
         }
+        Path file = FileManager.locateTranscription(entry.path());
+        try {
+            String content = FileManager.loadTranscription(file);
+            setEditorText(content);
+            currentTranscriptionFile = file;
+            // Word timings are only read when the user reviews words
+            wordTimings = null;
+            timedText = content;
+            setStatus("Loaded " + fileName);
+        } catch (Exception e) {
+            showError("Load Error", e.getMessage());
+        }
+    }
+    
+    /**
+     * Replace the whole editor text; all of it then counts as edited.
+     */
+    private void setEditorText(String text) {
+        textEditor.clear();
+        // clear() bypasses the text formatter, so earlier edit ranges no longer apply
+        editorCleaner.reset();
+        textEditor.appendText(text);
     }
     
+    /**
+     * Remove filler words from the paragraphs edited since the last clean and apply
+     * the normalization dictionary, replacing only the changed characters so the
+     * caret, scroll position and undo history of the rest of the text are kept.
+     */
     private void cleanTranscription() {
-        String content = textEditor.getText();
-        if (content.trim().isEmpty()) {
+        if (textEditor.getLength() == 0) {
             showInfo("Empty", "No transcription text to clean.");
             return;
         }
+        if (!editorCleaner.isDirty()) {
+            setStatus("Transcription already clean");
+            return;
+        }
         
-        String cleaned = TranscriptionCleaner.removeFillerWords(content);
-        textEditor.clear();
-        textEditor.appendText(cleaned);
-        setStatus("Transcription cleaned");
+        int[] selection = {textEditor.getAnchor(), textEditor.getCaretPosition()};
+        int cleaned = editorCleaner.clean(new IncrementalCleaner.Document() {
+            @Override
+            public List<CharSequence> paragraphs() {
+                return textEditor.getParagraphs();
+            }
+            
+            @Override
+            public int length() {
+                return textEditor.getLength();
+            }
+            
+            @Override
+            public void replace(int start, int end, String text) {
+                textEditor.replaceText(start, end, text);
+                for (int i = 0; i < selection.length; i++) {
+                    if (selection[i] >= end) {
+                        selection[i] += text.length() - (end - start);
+                    } else if (selection[i] > start) {
+                        selection[i] = start + Math.min(selection[i] - start, text.length());
+                    }
+                }
+            }
+        });
+        textEditor.selectRange(selection[0], selection[1]);
+        setStatus(String.format("Cleaned %d paragraph(s)", cleaned));
+    }
+    
+    /**
+     * Select the next word after the selection whose recognition confidence is below
+     * {@link Config#LOW_CONFIDENCE_THRESHOLD} and show when it was spoken. Edits made
+     * since loading are allowed for; words inside edited text are skipped.
+     */
+    private void selectNextUncertainWord() {
+        if (currentTranscriptionFile == null || timedText == null) {
+            showInfo("No file", "No transcription file is currently loaded.");
+            return;
+        }
+        try {
+            if (wordTimings == null) {
+                Path sidecar = WordTimings.sidecarPath(currentTranscriptionFile);
+                if (!Files.exists(sidecar)) {
+                    showInfo("No Word Timings", "This transcription has no word timings.");
+                    return;
+                }
+                wordTimings = WordTimings.open(sidecar);
+            }
+            String text = textEditor.getText();
+            WordTimings.Edit edit = WordTimings.Edit.between(timedText, text);
+            int from = edit.unmap(textEditor.getSelection().getEnd());
+            WordTimings.Word word;
+            while ((word = wordTimings.nextBelow(from, Config.LOW_CONFIDENCE_THRESHOLD)) != null) {
+                WordTimings.Word shown = edit.map(word);
+                if (shown != null) {
+                    textEditor.selectRange(shown.offset(), shown.end());
+                    textEditor.requestFocus();
+                    setStatus(String.format("\"%s\" at %d:%04.1f, %.0f%% confidence", 
+                            text.substring(shown.offset(), shown.end()), word.startMs() / 60_000, 
+                            word.startMs() % 60_000 / 1000.0, word.confidence() * 100));
+                    return;
+                }
+                from = word.end();
+            }
+            setStatus("No more uncertain words");
+        } catch (IOException e) {
+            showError("Word Timings", "Failed to read word timings: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Move the loaded file's word timings onto its newly saved text, dropping the
+     * words that were edited.
+     */
+    private void updateWordTimings(String savedText) {
+        Path sidecar = WordTimings.sidecarPath(currentTranscriptionFile);
+        if (timedText == null || timedText.equals(savedText) || !Files.exists(sidecar)) {
+            timedText = savedText;
+            return;
+        }
+        try {
+            WordTimings.Edit edit = WordTimings.Edit.between(timedText, savedText);
+            List<WordTimings.Word> words = new java.util.ArrayList<>();
+            for (WordTimings.Word word : WordTimings.open(sidecar).readAll()) {
+                WordTimings.Word moved = edit.map(word);
+                if (moved != null) {
+                    words.add(moved);
+                }
+            }
+            WordTimings.write(sidecar, words);
+            wordTimings = null;
+            timedText = savedText;
+        } catch (IOException e) {
+            // The sidecar still matches the text loaded before this save
+            System.err.println("Failed to update word timings: " + e.getMessage());
+        }
     }
     
     private void deleteTranscription() {
@@ -479,10 +774,15 @@ public class TranscriberApp extends javafx.application.Application {
         if (patient.isEmpty()) {
             patient = "unknown";
         }
+        currentTranscriptionFile = FileManager.locateTranscription(currentTranscriptionFile);
         FileManager.secureDelete(currentTranscriptionFile, patient);
+        FileManager.secureDelete(WordTimings.sidecarPath(currentTranscriptionFile), patient);
+        transcriptionIndex.update(currentTranscriptionFile);
         currentTranscriptionFile = null;
+        wordTimings = null;
+        timedText = null;
         
-        textEditor.clear();
+        setEditorText("");
         refreshFileList();
         setStatus("Deleted " + filename);
     }
@@ -0,0 +1,282 @@
+package com.transcriber;
+
+import com.transcriber.config.Config;
+import com.transcriber.file.TranscriptionFilter;
+import com.transcriber.file.TranscriptionIndex;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Transcription file list with patient, DOB and date filters.
+ * <p>
+ * Filtering runs on a background thread. The matches are shown a page at a time
+ * ({@link Config#FILE_LIST_PAGE_SIZE}), with more pages appended on request, and a
+ * refresh changes only the rows that differ, so the selection and scroll position
+ * are kept. All methods must be called on the JavaFX thread.
+ */
+public class TranscriptionBrowser extends VBox {
+
+    private final Consumer<TranscriptionIndex.Entry> onSelect;
+    private final ListView<TranscriptionIndex.Entry> listView = new ListView<>();
+    private final TextField patientFilter = new TextField();
+    private final TextField dobFilter = new TextField();
+    private final DatePicker fromFilter = new DatePicker();
+    private final DatePicker toFilter = new DatePicker();
+    private final Label countLabel = new Label();
+    private final Button moreButton = new Button("Show More");
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TranscriptionBrowser");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Supplier<List<TranscriptionIndex.Entry>> source = List::of;
+    // All matches of the filter, of which the first rows are shown
+    private List<TranscriptionIndex.Entry> matches = List.of();
+    // Latest refresh; results of earlier ones are dropped
+    private long generation;
+    // Set while rows are updated, so keeping the selection does not count as selecting
+    private boolean updating;
+
+    /**
+     * @param onSelect Called with a transcription the user selected
+     */
+    public TranscriptionBrowser(Consumer<TranscriptionIndex.Entry> onSelect) {
+        super(8);
+        this.onSelect = onSelect;
+
+        patientFilter.setPromptText("Patient");
+        dobFilter.setPromptText("DOB");
+        fromFilter.setPromptText("From");
+        toFilter.setPromptText("To");
+        HBox.setHgrow(patientFilter, Priority.ALWAYS);
+        HBox.setHgrow(dobFilter, Priority.ALWAYS);
+        HBox.setHgrow(fromFilter, Priority.ALWAYS);
+        HBox.setHgrow(toFilter, Priority.ALWAYS);
+        patientFilter.textProperty().addListener((obs, oldVal, newVal) -> filterChanged());
+        dobFilter.textProperty().addListener((obs, oldVal, newVal) -> filterChanged());
+        fromFilter.valueProperty().addListener((obs, oldVal, newVal) -> filterChanged());
+        toFilter.valueProperty().addListener((obs, oldVal, newVal) -> filterChanged());
+        Button clearButton = new Button("Clear");
+        clearButton.setOnAction(e -> clearFilter());
+
+        listView.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(TranscriptionIndex.Entry entry, boolean empty) {
+                super.updateItem(entry, empty);
+                setText(empty || entry == null ? null : entry.fileName());
+            }
+        });
+        listView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null && !updating) {
+                onSelect.accept(newVal);
+            }
+        });
+        VBox.setVgrow(listView, Priority.ALWAYS);
+
+        moreButton.setOnAction(e -> showMore(listView.getItems().size() + Config.FILE_LIST_PAGE_SIZE));
+        HBox pageBar = new HBox(8, countLabel, moreButton);
+        pageBar.setAlignment(Pos.CENTER_LEFT);
+
+        getChildren().addAll(new HBox(8, patientFilter, dobFilter), new HBox(8, fromFilter, toFilter, clearButton),
+                listView, pageBar);
+        updatePageBar();
+    }
+
+    /**
+     * Set where the transcriptions come from (e.g. all of them, or search results),
+     * newest first, and show them from the first page.
+     */
+    public void setSource(Supplier<List<TranscriptionIndex.Entry>> source) {
+        this.source = source;
+        refresh(null, Config.FILE_LIST_PAGE_SIZE);
+    }
+
+    /**
+     * Show the current transcriptions, keeping as many rows as are shown now.
+     *
+     * @param fileToSelect File name to select (and open), or null to keep the selection
+     */
+    public void refresh(String fileToSelect) {
+        refresh(fileToSelect, Math.max(listView.getItems().size(), Config.FILE_LIST_PAGE_SIZE));
+    }
+
+    /**
+     * Select (and open) a transcription if it matches the filter, showing more rows
+     * if needed.
+     */
+    public void select(String fileName) {
+        int index = indexOf(matches, fileName);
+        if (index < 0) {
+            return;
+        }
+        if (index >= listView.getItems().size()) {
+            showMore(index + 1);
+        }
+        listView.getSelectionModel().select(index);
+        listView.scrollTo(index);
+    }
+
+    private void filterChanged() {
+        refresh(null, Config.FILE_LIST_PAGE_SIZE);
+    }
+
+    private void clearFilter() {
+        patientFilter.clear();
+        dobFilter.clear();
+        fromFilter.setValue(null);
+        toFilter.setValue(null);
+    }
+
+    /**
+     * Filter the source in the background, then update the rows.
+     *
+     * @param rows Number of rows to show
+     */
+    private void refresh(String fileToSelect, int rows) {
+        long current = ++generation;
+        Supplier<List<TranscriptionIndex.Entry>> from = source;
+        TranscriptionFilter filter = TranscriptionFilter.of(patientFilter.getText(), dobFilter.getText(),
+                fromFilter.getValue(), toFilter.getValue());
+        loader.execute(() -> {
+            List<TranscriptionIndex.Entry> all = from.get();
+            List<TranscriptionIndex.Entry> filtered = all;
+            if (!filter.isEmpty()) {
+                filtered = new ArrayList<>();
+                for (TranscriptionIndex.Entry entry : all) {
+                    if (filter.matches(entry)) {
+                        filtered.add(entry);
+                    }
+                }
+            }
+            List<TranscriptionIndex.Entry> result = filtered;
+            Platform.runLater(() -> {
+                if (current == generation) {
+                    show(result, rows, fileToSelect);
+                }
+            });
+        });
+    }
+
+    /**
+     * Show the first rows of new matches, changing only the rows that differ.
+     */
+    private void show(List<TranscriptionIndex.Entry> newMatches, int rows, String fileToSelect) {
+        matches = newMatches;
+        int selectIndex = fileToSelect != null ? indexOf(matches, fileToSelect) : -1;
+        int count = Math.min(matches.size(), Math.max(rows, selectIndex + 1));
+        TranscriptionIndex.Entry selected = listView.getSelectionModel().getSelectedItem();
+        updating = true;
+        try {
+            applyDiff(listView.getItems(), matches.subList(0, count));
+            if (selectIndex < 0 && selected != null) {
+                int index = indexOf(listView.getItems(), selected.fileName());
+                if (index >= 0) {
+                    listView.getSelectionModel().select(index);
+                } else {
+                    listView.getSelectionModel().clearSelection();
+                }
+            }
+        } finally {
+            updating = false;
+        }
+        if (selectIndex >= 0) {
+            listView.getSelectionModel().clearSelection();
+            listView.getSelectionModel().select(selectIndex);
+            listView.scrollTo(selectIndex);
+        }
+        updatePageBar();
+    }
+
+    private void showMore(int rows) {
+        ObservableList<TranscriptionIndex.Entry> items = listView.getItems();
+        int count = Math.min(matches.size(), rows);
+        if (count > items.size()) {
+            items.addAll(matches.subList(items.size(), count));
+        }
+        updatePageBar();
+    }
+
+    private void updatePageBar() {
+        int shown = listView.getItems().size();
+        countLabel.setText(shown < matches.size()
+                ? String.format("Showing %,d of %,d", shown, matches.size())
+                : String.format("%,d transcription(s)", matches.size()));
+        moreButton.setDisable(shown >= matches.size());
+    }
+
+    /**
+     * Turn the rows into the target rows with few list changes: drop rows that are
+     * gone, changed or out of order, then insert the missing ones in place.
+     */
+    static <T> void applyDiff(ObservableList<T> rows, List<T> target) {
+        Map<T, Integer> positions = new HashMap<>(target.size() * 2);
+        for (int i = 0; i < target.size(); i++) {
+            positions.put(target.get(i), i);
+        }
+        // Keep rows that appear in the target in increasing target order
+        boolean[] keep = new boolean[rows.size()];
+        int last = -1;
+        for (int i = 0; i < rows.size(); i++) {
+            Integer position = positions.get(rows.get(i));
+            if (position != null && position > last) {
+                keep[i] = true;
+                last = position;
+            }
+        }
+        for (int end = rows.size(); end > 0; ) {
+            if (keep[end - 1]) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !keep[start - 1]) {
+                start--;
+            }
+            rows.remove(start, end);
+            end = start;
+        }
+        // The kept rows are now an ordered subsequence of the target
+        int i = 0;
+        while (i < target.size()) {
+            if (i < rows.size() && rows.get(i).equals(target.get(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < target.size() && (i >= rows.size() || !rows.get(i).equals(target.get(end)))) {
+                end++;
+            }
+            rows.addAll(i, target.subList(i, end));
+            i = end;
+        }
+    }
+
+    private static int indexOf(List<TranscriptionIndex.Entry> entries, String fileName) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).fileName().equals(fileName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
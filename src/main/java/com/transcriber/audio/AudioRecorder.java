@@ -4,9 +4,8 @@ import com.transcriber.audit.AuditLogger;
 import com.transcriber.config.Config;
 
 import javax.sound.sampled.*;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -16,18 +15,63 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Audio recording utilities using Java Sound API.
- * Threaded WAV recorder that streams microphone audio to disk.
+ * Threaded WAV recorder that streams microphone audio to disk as it is captured,
+ * so memory use stays constant regardless of recording length.
  */
 public class AudioRecorder {
     
+    /**
+     * Receives segment files while a segmented recording is in progress.
+     * Callbacks run on the recorder's writer thread and should return quickly.
+     */
+    public interface SegmentListener {
+        /**
+         * A segment WAV file has been finalized.
+         */
+        void segmentCompleted(int index, Path segment);
+        
+        /**
+         * Recording stopped; no further segments will follow.
+         * 
+         * @param segmentCount Number of segments delivered, or -1 if segmenting failed
+         *                     and only the full recording is usable
+         */
+        void recordingCompleted(int segmentCount);
+    }
+    
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
             .withZone(ZoneId.systemDefault());
+    // Capture reads of 4 KiB arrive every 128 ms at 16 kHz mono; a gap of several reads is a stall
+    private static final long CAPTURE_STALL_MS = 500;
+    
+    /**
+     * Receives captured audio as it is persisted, e.g. to stream it to a live recognizer.
+     * Callbacks run on the recorder's writer thread and must not block.
+     */
+    public interface AudioListener {
+        /**
+         * Called for each block of captured 16-bit PCM. The buffer is only valid
+         * during the call; its position is restored afterwards.
+         */
+        void audioCaptured(ByteBuffer pcm);
+        
+        /**
+         * Recording stopped; no further audio will follow.
+         */
+        void captureStopped();
+    }
     
     private TargetDataLine line;
+    private Thread captureThread;
     private Thread recordingThread;
     private final AtomicBoolean recording = new AtomicBoolean(false);
+    private final PcmRingBuffer captureBuffer = new PcmRingBuffer(
+            Config.CAPTURE_BUFFER_SECONDS * Config.SAMPLE_RATE * Config.CHANNELS * 2, CAPTURE_STALL_MS);
     private Path currentFile;
-    private ByteArrayOutputStream audioBuffer;
+    private WavWriter wavWriter;
+    private SegmentWriter segmentWriter;
+    private volatile SegmentListener segmentListener;
+    private volatile AudioListener audioListener;
     
     /**
      * Get the current recording file path.
@@ -43,6 +87,60 @@ public class AudioRecorder {
         return recording.get();
     }
     
+    /**
+     * Set the listener that receives segment files during recording.
+     * When set (and {@link Config#SEGMENT_SECONDS} is positive), the next recording is
+     * also split into segments alongside the full recording file. Pass null to disable.
+     */
+    public void setSegmentListener(SegmentListener listener) {
+        this.segmentListener = listener;
+    }
+    
+    /**
+     * Set the listener that receives captured audio during the next recording.
+     * Pass null to disable.
+     */
+    public void setAudioListener(AudioListener listener) {
+        this.audioListener = listener;
+    }
+    
+    /**
+     * Get the number of captured chunks dropped because the writer fell behind.
+     * Zero means no audio was lost.
+     */
+    public long getOverrunCount() {
+        return captureBuffer.getOverrunCount();
+    }
+    
+    /**
+     * Get the number of captured bytes dropped because the writer fell behind.
+     */
+    public long getOverrunBytes() {
+        return captureBuffer.getOverrunBytes();
+    }
+    
+    /**
+     * Get the number of capture stalls: times the capture buffer stayed empty for
+     * longer than {@link #CAPTURE_STALL_MS} while recording.
+     */
+    public long getUnderrunCount() {
+        return captureBuffer.getUnderrunCount();
+    }
+    
+    /**
+     * Get the highest number of bytes waiting in the capture buffer during the recording.
+     */
+    public int getBufferHighWaterMark() {
+        return captureBuffer.getHighWaterMark();
+    }
+    
+    /**
+     * Get the capture buffer capacity in bytes.
+     */
+    public int getBufferCapacity() {
+        return captureBuffer.getCapacity();
+    }
+    
     /**
      * Start recording audio from the microphone.
      * 
@@ -75,13 +173,28 @@ public class AudioRecorder {
             
             line = (TargetDataLine) AudioSystem.getLine(info);
             line.open(format);
-            audioBuffer = new ByteArrayOutputStream();
+            try {
+                wavWriter = new WavWriter(currentFile, Config.SAMPLE_RATE, Config.CHANNELS, 16);
+            } catch (IOException e) {
+                line.close();
+                throw e;
+            }
+            SegmentListener listener = segmentListener;
+            segmentWriter = listener != null && Config.SEGMENT_SECONDS > 0
+                    ? new SegmentWriter(currentFile, Config.SAMPLE_RATE, Config.CHANNELS, listener)
+                    : null;
+            captureBuffer.reset();
             recording.set(true);
             
             recordingThread = new Thread(this::record, "AudioRecorder");
             recordingThread.setDaemon(true);
             recordingThread.start();
             
+            captureThread = new Thread(this::capture, "AudioCapture");
+            captureThread.setDaemon(true);
+            captureThread.setPriority(Thread.MAX_PRIORITY);
+            captureThread.start();
+            
             AuditLogger.log("record_start", currentFile, "", "Recording started");
             return currentFile;
             
@@ -92,9 +205,11 @@ public class AudioRecorder {
     }
     
     /**
-     * Internal recording method that runs in a separate thread.
+     * Capture loop that runs in its own thread. It only reads from the line and
+     * copies into the preallocated ring buffer, so a stall on the disk side never
+     * backs up the sound card.
      */
-    private void record() {
+    private void capture() {
         line.start();
         byte[] buffer = new byte[4096];
         
@@ -102,7 +217,7 @@ public class AudioRecorder {
             while (recording.get()) {
                 int bytesRead = line.read(buffer, 0, buffer.length);
                 if (bytesRead > 0) {
-                    audioBuffer.write(buffer, 0, bytesRead);
+                    captureBuffer.write(buffer, 0, bytesRead);
                 }
             }
         } catch (Exception e) {
@@ -110,35 +225,90 @@ public class AudioRecorder {
         } finally {
             line.stop();
             line.close();
-            saveRecording();
+            captureBuffer.closeProducer();
         }
     }
     
     /**
-     * Save the recorded audio to a WAV file.
+     * Internal recording method that runs in a separate thread.
+     * Drains the capture buffer straight to the WAV file (and the current segment,
+     * if segmenting) until capture has stopped.
      */
-    private void saveRecording() {
+    private void record() {
+        SegmentWriter segments = segmentWriter;
+        AudioListener listener = audioListener;
+        PcmRingBuffer.Sink sink = segments == null && listener == null ? wavWriter::write : chunk -> {
+            if (listener != null) {
+                int position = chunk.position();
+                try {
+                    listener.audioCaptured(chunk);
+                } catch (RuntimeException e) {
+                    // A listener failure must never cost the recording itself
+                    System.err.println("Audio listener failed: " + e.getMessage());
+                }
+                chunk.position(position);
+            }
+            if (segments != null) {
+                segments.write(chunk);
+            }
+            wavWriter.write(chunk);
+        };
         try {
-            byte[] audioData = audioBuffer.toByteArray();
-            ByteArrayInputStream bais = new ByteArrayInputStream(audioData);
-            
-            AudioFormat format = new AudioFormat(
-                Config.SAMPLE_RATE,
-                16,
-                Config.CHANNELS,
-                true,
-                false
-            );
-            
-            AudioInputStream audioInputStream = new AudioInputStream(bais, format, audioData.length / format.getFrameSize());
-            AudioSystem.write(audioInputStream, AudioFileFormat.Type.WAVE, currentFile.toFile());
-            audioInputStream.close();
-            
+            while (captureBuffer.drain(sink) >= 0) {
+                // keep draining until the capture thread closes the buffer
+            }
+        } catch (Exception e) {
+            System.err.println("Error writing recording: " + e.getMessage());
+        } finally {
+            closeRecording();
+            if (segments != null) {
+                segments.finish();
+            }
+            if (listener != null) {
+                listener.captureStopped();
+            }
+        }
+    }
+    
+    /**
+     * Finalize the WAV header and close the recording file.
+     */
+    private void closeRecording() {
+        try {
+            wavWriter.close();
         } catch (IOException e) {
             System.err.println("Failed to save recording: " + e.getMessage());
         }
     }
     
+    /**
+     * Repair recordings left with an unfinished WAV header by a previous crash,
+     * so they can still be transcribed.
+     * 
+     * @return Number of recordings repaired
+     */
+    public static int recoverRecordings() {
+        if (!Files.exists(Config.RECORDINGS_DIR)) {
+            return 0;
+        }
+        int repaired = 0;
+        try (var stream = Files.list(Config.RECORDINGS_DIR)) {
+            for (Path path : (Iterable<Path>) stream.filter(WavWriter::isWavFile)::iterator) {
+                try {
+                    if (WavWriter.repair(path)) {
+                        repaired++;
+                        AuditLogger.log("record_recover", path, "", "Repaired WAV header after interrupted recording");
+                    }
+                } catch (IOException e) {
+                    System.err.println("Failed to recover recording " + path + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to scan recordings: " + e.getMessage());
+        }
+        return repaired;
+    }
+    
     /**
      * Stop recording.
      * 
@@ -151,15 +321,22 @@ public class AudioRecorder {
         
         recording.set(false);
         
-        if (recordingThread != null) {
-            try {
-                recordingThread.join(2000); // Wait up to 2 seconds for thread to finish
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        try {
+            // Wait up to 2 seconds for each thread to finish
+            if (captureThread != null) {
+                captureThread.join(2000);
+            }
+            if (recordingThread != null) {
+                recordingThread.join(2000);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         
-        AuditLogger.log("record_stop", currentFile != null ? currentFile : Path.of(""), "", "Recording stopped");
+        AuditLogger.log("record_stop", currentFile != null ? currentFile : Path.of(""), "",
+                String.format("Recording stopped (overruns=%d, dropped_bytes=%d, underruns=%d, buffer_high_water=%d/%d)",
+                        getOverrunCount(), getOverrunBytes(), getUnderrunCount(),
+                        getBufferHighWaterMark(), getBufferCapacity()));
         return currentFile;
     }
 }
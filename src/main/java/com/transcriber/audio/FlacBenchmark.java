@@ -0,0 +1,81 @@
+package com.transcriber.audio;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Measures {@link FlacEncoder} throughput against recording length, on synthetic
+ * 16 kHz mono dictation (speech-like tone bursts with pauses of low noise).
+ * <p>
+ * Run after {@code mvn compile} with
+ * {@code java -cp target/classes com.transcriber.audio.FlacBenchmark [minutes...]}
+ * (default 1 5 15 30 60). Each length is encoded four times and the best time is
+ * reported; the recordings are written to a temporary directory and deleted.
+ */
+public class FlacBenchmark {
+
+    private static final int SAMPLE_RATE = 16_000;
+    private static final int RUNS = 4;
+
+    private FlacBenchmark() {
+        // Command-line tool - prevent instantiation
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] lengths = {1, 5, 15, 30, 60};
+        if (args.length > 0) {
+            lengths = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                lengths[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Path directory = Files.createTempDirectory("flac-benchmark");
+        Path flac = directory.resolve("benchmark.flac");
+        try {
+            System.out.println("length       input ->   output  ratio   best ms      MB/s   realtime");
+            for (int minutes : lengths) {
+                Path wav = directory.resolve("benchmark-" + minutes + ".wav");
+                writeDictation(wav, minutes);
+                long best = Long.MAX_VALUE;
+                FlacEncoder.Result result = null;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    result = FlacEncoder.encode(wav, flac);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                double seconds = best / 1e9;
+                System.out.printf("%3d min  %6.1f MB -> %6.1f MB  %4.0f%%  %8.0f  %8.1f  %8.0fx%n",
+                        minutes, result.inputBytes() / 1e6, result.outputBytes() / 1e6,
+                        result.compressionRatio() * 100, best / 1e6, result.inputBytes() / 1e6 / seconds,
+                        minutes * 60 / seconds);
+                Files.delete(wav);
+            }
+        } finally {
+            Files.deleteIfExists(flac);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Write a recording of alternating 8 s of speech-like signal and 4 s of pause.
+     */
+    private static void writeDictation(Path path, int minutes) throws IOException {
+        Random random = new Random(3);
+        byte[] second = new byte[SAMPLE_RATE * 2];
+        try (WavWriter writer = new WavWriter(path, SAMPLE_RATE, 1, 16)) {
+            for (int s = 0; s < minutes * 60; s++) {
+                boolean speech = (s / 4) % 3 != 2;
+                for (int i = 0; i < SAMPLE_RATE; i++) {
+                    int sample = speech
+                            ? (int) (5000 * Math.sin(i * 0.07) * Math.sin(i * 0.003) + random.nextGaussian() * 300)
+                            : (int) (random.nextGaussian() * 40);
+                    second[2 * i] = (byte) sample;
+                    second[2 * i + 1] = (byte) (sample >> 8);
+                }
+                writer.write(second, 0, second.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.transcriber.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Pure-Java lossless FLAC encoder for 16-bit PCM WAV recordings.
+ * <p>
+ * The WAV data is streamed block by block, so memory use does not depend on the
+ * recording length. Each channel of a block is coded as a CONSTANT, FIXED
+ * (polynomial predictor order 0-4, partitioned Rice residual) or VERBATIM
+ * subframe, whichever is smallest. STREAMINFO (frame sizes, sample count, MD5)
+ * is patched in place once all frames are written.
+ */
+public class FlacEncoder {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MAX_FIXED_ORDER = 4;
+    private static final int MAX_PARTITION_ORDER = 6;
+    private static final int MAX_RICE_PARAMETER = 14;
+    private static final int STREAMINFO_OFFSET = 8;
+    private static final int STREAMINFO_LENGTH = 34;
+
+    private static final int[] CRC8_TABLE = new int[256];
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc8 = i;
+            int crc16 = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc8 = (crc8 & 0x80) != 0 ? (crc8 << 1) ^ 0x07 : crc8 << 1;
+                crc16 = (crc16 & 0x8000) != 0 ? (crc16 << 1) ^ 0x8005 : crc16 << 1;
+            }
+            CRC8_TABLE[i] = crc8 & 0xFF;
+            CRC16_TABLE[i] = crc16 & 0xFFFF;
+        }
+    }
+
+    /**
+     * Outcome of an encode pass.
+     *
+     * @param inputBytes PCM bytes read from the WAV data chunk
+     * @param outputBytes Size of the FLAC file
+     * @param frames Number of FLAC frames written
+     */
+    public record Result(long inputBytes, long outputBytes, long frames) {
+
+        public double compressionRatio() {
+            return inputBytes == 0 ? 1.0 : (double) outputBytes / inputBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Encoded %d PCM bytes to %d FLAC bytes (%.0f%%)",
+                    inputBytes, outputBytes, compressionRatio() * 100);
+        }
+    }
+
+    private FlacEncoder() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Encode a 16-bit PCM WAV file to FLAC.
+     *
+     * @param input Source WAV file
+     * @param output Destination FLAC file, overwritten if present
+     * @return Size statistics for the encode
+     * @throws IOException If reading or writing fails, or the input is not 16-bit PCM
+     */
+    public static Result encode(Path input, Path output) throws IOException {
+        WavFile wav = WavFile.open(input);
+        wav.require16Bit();
+        int channels = wav.channels();
+        if (channels < 1 || channels > 8) {
+            throw new IOException("Unsupported channel count for FLAC: " + channels);
+        }
+
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+
+        int frameSize = wav.frameSize();
+        byte[] pcm = new byte[BLOCK_SIZE * frameSize];
+        ByteBuffer pcmBuffer = ByteBuffer.wrap(pcm);
+        int[][] samples = new int[channels][BLOCK_SIZE];
+        int[] residual = new int[BLOCK_SIZE];
+        BitWriter bits = new BitWriter(BLOCK_SIZE * frameSize + 1024);
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer preamble = ByteBuffer.allocate(STREAMINFO_OFFSET + STREAMINFO_LENGTH);
+            preamble.put(new byte[] {'f', 'L', 'a', 'C'});
+            preamble.putInt(0x80000000 | STREAMINFO_LENGTH); // last metadata block, type STREAMINFO
+            preamble.flip();
+            writeFully(out, preamble);
+            out.position(STREAMINFO_OFFSET + STREAMINFO_LENGTH);
+
+            long position = wav.dataOffset();
+            long end = wav.dataOffset() + wav.dataLength();
+            long frameNumber = 0;
+            long totalSamples = 0;
+            int minFrameBytes = Integer.MAX_VALUE;
+            int maxFrameBytes = 0;
+
+            while (position < end) {
+                pcmBuffer.clear().limit((int) Math.min(pcm.length, end - position));
+                while (pcmBuffer.hasRemaining()) {
+                    if (in.read(pcmBuffer, position + pcmBuffer.position()) < 0) {
+                        break;
+                    }
+                }
+                int bytes = pcmBuffer.position() - pcmBuffer.position() % frameSize;
+                if (bytes == 0) {
+                    break;
+                }
+                position += bytes;
+                md5.update(pcm, 0, bytes);
+
+                int blockSize = bytes / frameSize;
+                for (int i = 0, b = 0; i < blockSize; i++) {
+                    for (int ch = 0; ch < channels; ch++, b += 2) {
+                        samples[ch][i] = (short) ((pcm[b] & 0xFF) | (pcm[b + 1] << 8));
+                    }
+                }
+
+                bits.reset();
+                writeFrameHeader(bits, frameNumber, blockSize, wav.sampleRate(), channels);
+                for (int ch = 0; ch < channels; ch++) {
+                    writeSubframe(bits, samples[ch], blockSize, residual);
+                }
+                bits.alignToByte();
+                int crc16 = crc16(bits.buffer(), bits.length());
+                bits.write(crc16, 16);
+
+                writeFully(out, ByteBuffer.wrap(bits.buffer(), 0, bits.length()));
+                minFrameBytes = Math.min(minFrameBytes, bits.length());
+                maxFrameBytes = Math.max(maxFrameBytes, bits.length());
+                totalSamples += blockSize;
+                frameNumber++;
+            }
+
+            BitWriter info = new BitWriter(STREAMINFO_LENGTH);
+            info.write(BLOCK_SIZE, 16);
+            info.write(BLOCK_SIZE, 16);
+            info.write(frameNumber == 0 ? 0 : minFrameBytes, 24);
+            info.write(maxFrameBytes, 24);
+            info.write(wav.sampleRate(), 20);
+            info.write(channels - 1, 3);
+            info.write(15, 5);                          // bits per sample - 1
+            info.write((int) (totalSamples >>> 32), 4);
+            info.write((int) totalSamples, 32);
+            byte[] digest = md5.digest();
+            for (byte b : digest) {
+                info.write(b & 0xFF, 8);
+            }
+            ByteBuffer streamInfo = ByteBuffer.wrap(info.buffer(), 0, info.length());
+            while (streamInfo.hasRemaining()) {
+                out.write(streamInfo, STREAMINFO_OFFSET + streamInfo.position());
+            }
+            out.force(false);
+            return new Result(wav.dataLength(), out.size(), frameNumber);
+        }
+    }
+
+    private static void writeFrameHeader(BitWriter bits, long frameNumber, int blockSize, int sampleRate,
+                                         int channels) {
+        bits.write(0x3FFE, 14);                         // sync code
+        bits.write(0, 1);                               // reserved
+        bits.write(0, 1);                               // fixed block size
+        boolean fullBlock = blockSize == BLOCK_SIZE;
+        bits.write(fullBlock ? 0b1100 : 0b0111, 4);     // 4096, or 16-bit size at end of header
+        int rateCode = sampleRateCode(sampleRate);
+        bits.write(rateCode, 4);
+        bits.write(channels - 1, 4);                    // independent channels
+        bits.write(0b100, 3);                           // 16 bits per sample
+        bits.write(0, 1);                               // reserved
+        writeUtf8Number(bits, frameNumber);
+        if (!fullBlock) {
+            bits.write(blockSize - 1, 16);
+        }
+        bits.write(crc8(bits.buffer(), bits.length()), 8);
+    }
+
+    private static int sampleRateCode(int sampleRate) {
+        return switch (sampleRate) {
+            case 8_000 -> 0b0100;
+            case 16_000 -> 0b0101;
+            case 22_050 -> 0b0110;
+            case 24_000 -> 0b0111;
+            case 32_000 -> 0b1000;
+            case 44_100 -> 0b1001;
+            case 48_000 -> 0b1010;
+            case 96_000 -> 0b1011;
+            default -> 0b0000;                          // take the rate from STREAMINFO
+        };
+    }
+
+    private static void writeUtf8Number(BitWriter bits, long value) {
+        if (value < 0x80) {
+            bits.write((int) value, 8);
+            return;
+        }
+        int continuationBytes = value < 0x800 ? 1 : value < 0x10000 ? 2 : value < 0x200000 ? 3
+                : value < 0x4000000 ? 4 : 5;
+        int leadBits = 6 - continuationBytes;
+        int lead = (0xFF00 >> (continuationBytes + 1)) & 0xFF;
+        bits.write(lead | (int) (value >>> (6 * continuationBytes)) & ((1 << leadBits) - 1), 8);
+        for (int i = continuationBytes - 1; i >= 0; i--) {
+            bits.write(0x80 | (int) (value >>> (6 * i)) & 0x3F, 8);
+        }
+    }
+
+    /**
+     * Write the smallest of a CONSTANT, FIXED or VERBATIM subframe for one channel.
+     */
+    private static void writeSubframe(BitWriter bits, int[] samples, int blockSize, int[] residual) {
+        boolean constant = true;
+        for (int i = 1; i < blockSize && constant; i++) {
+            constant = samples[i] == samples[0];
+        }
+        if (constant) {
+            bits.write(0, 8);                           // padding, CONSTANT, no wasted bits
+            bits.write(samples[0], 16);
+            return;
+        }
+
+        // Pick the fixed predictor order with the smallest absolute residual sum
+        int maxOrder = Math.min(MAX_FIXED_ORDER, blockSize - 1);
+        int bestOrder = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int order = 0; order <= maxOrder; order++) {
+            long sum = 0;
+            for (int i = order; i < blockSize; i++) {
+                sum += Math.abs(fixedResidual(samples, i, order));
+            }
+            if (sum < bestSum) {
+                bestSum = sum;
+                bestOrder = order;
+            }
+        }
+        for (int i = bestOrder; i < blockSize; i++) {
+            residual[i] = fold(fixedResidual(samples, i, bestOrder));
+        }
+
+        int partitionOrder = choosePartitionOrder(residual, blockSize, bestOrder);
+        long fixedBits = 8 + 16L * bestOrder + residualBits(residual, blockSize, bestOrder, partitionOrder);
+        long verbatimBits = 8 + 16L * blockSize;
+        if (fixedBits >= verbatimBits) {
+            bits.write(0b00000010, 8);                  // padding, VERBATIM, no wasted bits
+            for (int i = 0; i < blockSize; i++) {
+                bits.write(samples[i], 16);
+            }
+            return;
+        }
+
+        bits.write(0b00010000 | bestOrder << 1, 8);     // padding, FIXED order, no wasted bits
+        for (int i = 0; i < bestOrder; i++) {
+            bits.write(samples[i], 16);
+        }
+        bits.write(0, 2);                               // Rice coding with 4-bit parameters
+        bits.write(partitionOrder, 4);
+        int partitions = 1 << partitionOrder;
+        int partitionSize = blockSize >> partitionOrder;
+        for (int p = 0, start = bestOrder; p < partitions; p++) {
+            int end = (p + 1) * partitionSize;
+            int k = riceParameter(residual, start, end);
+            bits.write(k, 4);
+            for (int i = start; i < end; i++) {
+                bits.writeRice(residual[i], k);
+            }
+            start = end;
+        }
+    }
+
+    private static int fixedResidual(int[] s, int i, int order) {
+        return switch (order) {
+            case 0 -> s[i];
+            case 1 -> s[i] - s[i - 1];
+            case 2 -> s[i] - 2 * s[i - 1] + s[i - 2];
+            case 3 -> s[i] - 3 * s[i - 1] + 3 * s[i - 2] - s[i - 3];
+            default -> s[i] - 4 * s[i - 1] + 6 * s[i - 2] - 4 * s[i - 3] + s[i - 4];
+        };
+    }
+
+    private static int fold(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int choosePartitionOrder(int[] residual, int blockSize, int predictorOrder) {
+        int bestOrder = 0;
+        long bestBits = Long.MAX_VALUE;
+        for (int order = 0; order <= MAX_PARTITION_ORDER; order++) {
+            int partitionSize = blockSize >> order;
+            if ((partitionSize << order) != blockSize || partitionSize <= predictorOrder) {
+                break;
+            }
+            long bits = residualBits(residual, blockSize, predictorOrder, order);
+            if (bits < bestBits) {
+                bestBits = bits;
+                bestOrder = order;
+            }
+        }
+        return bestOrder;
+    }
+
+    private static long residualBits(int[] residual, int blockSize, int predictorOrder, int partitionOrder) {
+        long bits = 6;
+        int partitionSize = blockSize >> partitionOrder;
+        for (int p = 0, start = predictorOrder; p < (1 << partitionOrder); p++) {
+            int end = (p + 1) * partitionSize;
+            int k = riceParameter(residual, start, end);
+            long sum = 0;
+            for (int i = start; i < end; i++) {
+                sum += residual[i] >>> k;
+            }
+            bits += 4 + (long) (end - start) * (k + 1) + sum;
+            start = end;
+        }
+        return bits;
+    }
+
+    /**
+     * Estimate the Rice parameter from the mean of the folded residuals.
+     */
+    private static int riceParameter(int[] residual, int start, int end) {
+        int count = end - start;
+        if (count <= 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = start; i < end; i++) {
+            sum += residual[i];
+        }
+        long mean = sum / count;
+        int k = mean > 0 ? 63 - Long.numberOfLeadingZeros(mean) : 0;
+        return Math.min(k, MAX_RICE_PARAMETER);
+    }
+
+    private static int crc8(byte[] data, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc = CRC8_TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    private static int crc16(byte[] data, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * MSB-first bit writer over a growable byte array.
+     */
+    private static final class BitWriter {
+        private byte[] buffer;
+        private int length;
+        private long accumulator;
+        private int pending;
+
+        BitWriter(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        void reset() {
+            length = 0;
+            accumulator = 0;
+            pending = 0;
+        }
+
+        /**
+         * Write the low {@code count} bits of value (count at most 32).
+         */
+        void write(int value, int count) {
+            accumulator = (accumulator << count) | (value & (0xFFFFFFFFL >>> (32 - count)));
+            pending += count;
+            while (pending >= 8) {
+                pending -= 8;
+                put((byte) (accumulator >>> pending));
+            }
+        }
+
+        /**
+         * Write a folded residual as Rice code: unary quotient, then k low bits.
+         */
+        void writeRice(int folded, int k) {
+            int quotient = folded >>> k;
+            while (quotient >= 32) {
+                write(0, 32);
+                quotient -= 32;
+            }
+            write(1, quotient + 1);
+            if (k > 0) {
+                write(folded, k);
+            }
+        }
+
+        void alignToByte() {
+            if (pending > 0) {
+                write(0, 8 - pending);
+            }
+        }
+
+        byte[] buffer() {
+            return buffer;
+        }
+
+        int length() {
+            return length;
+        }
+
+        private void put(byte b) {
+            if (length == buffer.length) {
+                buffer = java.util.Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[length++] = b;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.transcriber.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated lock-free single-producer/single-consumer byte ring buffer that
+ * decouples the audio capture thread from the thread persisting the audio.
+ * <p>
+ * The producer never blocks: a chunk that does not fit is dropped whole and
+ * counted as an overrun. The consumer drains contiguous regions of the backing
+ * array without copying. Finding the buffer empty is normal, as the consumer outruns
+ * the producer; an underrun is counted only when the buffer stays empty for longer
+ * than a stall threshold after audio has started, i.e. when the producer stalled.
+ */
+public class PcmRingBuffer {
+
+    /**
+     * Receives drained audio. The buffer is only valid for the duration of the call.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(ByteBuffer chunk) throws IOException;
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final byte[] buffer;
+    private final int mask;
+    private final ByteBuffer drainView;
+    private final long stallNanos;
+
+    // Absolute positions; written only by their owning thread, published with release semantics
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private volatile boolean producerClosed;
+
+    // Statistics; each field is written by a single thread only
+    private volatile long overrunCount;
+    private volatile long overrunBytes;
+    private volatile long underrunCount;
+    private volatile int highWaterMark;
+    // Consumer state for detecting stalls
+    private boolean started;
+    private long emptySince;
+    private boolean stalled;
+
+    /**
+     * Create a ring buffer holding at least the given number of bytes.
+     * The capacity is rounded up to a power of two.
+     *
+     * @param stallMillis How long the buffer may stay empty mid-stream before it
+     *                    counts as an underrun; longer than the producer's usual gap
+     *                    between writes
+     */
+    public PcmRingBuffer(int minCapacity, long stallMillis) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + minCapacity);
+        }
+        int capacity = Integer.highestOneBit(minCapacity);
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        this.buffer = new byte[capacity];
+        this.mask = capacity - 1;
+        this.drainView = ByteBuffer.wrap(buffer);
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+    }
+
+    /**
+     * Get the buffer capacity in bytes.
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Reset positions and statistics. Must not be called while a producer or consumer is active.
+     */
+    public void reset() {
+        writePosition.set(0);
+        readPosition.set(0);
+        producerClosed = false;
+        overrunCount = 0;
+        overrunBytes = 0;
+        underrunCount = 0;
+        highWaterMark = 0;
+        started = false;
+        emptySince = 0;
+        stalled = false;
+    }
+
+    /**
+     * Producer: append a chunk. The chunk is written entirely or, if there is not
+     * enough free space, dropped entirely so frame alignment is preserved.
+     *
+     * @return true if the chunk was written, false if it was dropped (overrun)
+     */
+    public boolean write(byte[] src, int offset, int length) {
+        long write = writePosition.get();
+        int used = (int) (write - readPosition.get());
+        if (length > buffer.length - used) {
+            overrunCount++;
+            overrunBytes += length;
+            return false;
+        }
+        int start = (int) (write & mask);
+        int firstPart = Math.min(length, buffer.length - start);
+        System.arraycopy(src, offset, buffer, start, firstPart);
+        if (firstPart < length) {
+            System.arraycopy(src, offset + firstPart, buffer, 0, length - firstPart);
+        }
+        writePosition.lazySet(write + length);
+        if (used + length > highWaterMark) {
+            highWaterMark = used + length;
+        }
+        return true;
+    }
+
+    /**
+     * Producer: signal that no more data will be written.
+     */
+    public void closeProducer() {
+        producerClosed = true;
+    }
+
+    /**
+     * Consumer: hand all currently buffered bytes to the sink, in at most two
+     * contiguous chunks. If the buffer is empty, park briefly; an empty stretch
+     * longer than the stall threshold counts as one underrun.
+     *
+     * @return Number of bytes drained, or -1 once the producer is closed and the buffer is empty
+     */
+    public int drain(Sink sink) throws IOException {
+        long read = readPosition.get();
+        boolean closed = producerClosed;
+        long write = writePosition.get();
+        int available = (int) (write - read);
+        if (available == 0) {
+            if (closed) {
+                return -1;
+            }
+            if (started && !stalled) {
+                long now = System.nanoTime();
+                if (emptySince == 0) {
+                    emptySince = now;
+                } else if (now - emptySince > stallNanos) {
+                    underrunCount++;
+                    stalled = true;
+                }
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+            return 0;
+        }
+        started = true;
+        emptySince = 0;
+        stalled = false;
+        int start = (int) (read & mask);
+        int firstPart = Math.min(available, buffer.length - start);
+        drainView.limit(start + firstPart).position(start);
+        sink.accept(drainView);
+        if (firstPart < available) {
+            drainView.limit(available - firstPart).position(0);
+            sink.accept(drainView);
+        }
+        readPosition.lazySet(write);
+        return available;
+    }
+
+    /**
+     * Get the number of chunks dropped because the buffer was full.
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * Get the number of bytes dropped because the buffer was full.
+     */
+    public long getOverrunBytes() {
+        return overrunBytes;
+    }
+
+    /**
+     * Get the number of times the producer stalled: the buffer stayed empty for
+     * longer than the stall threshold after audio had started. Audio is not lost by
+     * an underrun itself, but a long capture stall may have overflowed the source.
+     */
+    public long getUnderrunCount() {
+        return underrunCount;
+    }
+
+    /**
+     * Get the highest number of bytes buffered at once.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+}
@@ -0,0 +1,147 @@
+package com.transcriber.audio;
+
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Splits the recorded PCM stream into numbered WAV segment files.
+ * A segment is closed at the first pause of {@link Config#SEGMENT_PAUSE_MS} once it
+ * is {@link Config#SEGMENT_MIN_SECONDS} long, or unconditionally at
+ * {@link Config#SEGMENT_SECONDS}. Every closed segment is handed to the listener
+ * on the recorder's writer thread.
+ */
+class SegmentWriter {
+
+    private final Path recordingFile;
+    private final int sampleRate;
+    private final int channels;
+    private final AudioRecorder.SegmentListener listener;
+    private final VoiceActivityDetector detector;
+    private final byte[] frame;
+    private final long minSegmentBytes;
+    private final long maxSegmentBytes;
+    private final int pauseFrames;
+
+    private int frameFill;
+    private int silentFrames;
+    private int segmentIndex;
+    private WavWriter segment;
+    private boolean failed;
+
+    SegmentWriter(Path recordingFile, int sampleRate, int channels, AudioRecorder.SegmentListener listener) {
+        this.recordingFile = recordingFile;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.listener = listener;
+        this.detector = new VoiceActivityDetector(sampleRate, channels);
+        this.frame = new byte[detector.getFrameBytes()];
+        long bytesPerSecond = (long) sampleRate * channels * 2;
+        this.maxSegmentBytes = Config.SEGMENT_SECONDS * bytesPerSecond;
+        this.minSegmentBytes = Math.min(Config.SEGMENT_MIN_SECONDS * bytesPerSecond, maxSegmentBytes);
+        this.pauseFrames = Math.max(1, Config.SEGMENT_PAUSE_MS / VoiceActivityDetector.FRAME_MS);
+    }
+
+    /**
+     * Append PCM to the current segment, rotating at frame boundaries.
+     * The buffer's position is left unchanged. A write failure stops segmenting
+     * without affecting the full recording.
+     */
+    void write(ByteBuffer chunk) {
+        if (failed) {
+            return;
+        }
+        try {
+            writeChunk(chunk);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void writeChunk(ByteBuffer chunk) throws IOException {
+        int position = chunk.position();
+        int limit = chunk.limit();
+        byte[] array = chunk.array();
+        int offset = chunk.arrayOffset() + position;
+        int end = chunk.arrayOffset() + limit;
+        while (offset < end) {
+            int length = Math.min(frame.length - frameFill, end - offset);
+            System.arraycopy(array, offset, frame, frameFill, length);
+            frameFill += length;
+            offset += length;
+            if (frameFill == frame.length) {
+                writeFrame();
+            }
+        }
+    }
+
+    /**
+     * Flush any partial frame, hand over the final segment and signal completion.
+     */
+    void finish() {
+        if (!failed) {
+            try {
+                if (frameFill > 0) {
+                    currentSegment().write(frame, 0, frameFill);
+                    frameFill = 0;
+                }
+                if (segment != null) {
+                    completeSegment();
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        listener.recordingCompleted(failed ? -1 : segmentIndex);
+    }
+
+    private void fail(IOException e) {
+        System.err.println("Segmented recording failed: " + e.getMessage());
+        failed = true;
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException closeError) {
+                // already failing; the full recording is unaffected
+            }
+            segment = null;
+        }
+    }
+
+    private void writeFrame() throws IOException {
+        boolean speech = detector.isSpeech(frame, 0);
+        WavWriter writer = currentSegment();
+        writer.write(frame, 0, frame.length);
+        frameFill = 0;
+        silentFrames = speech ? 0 : silentFrames + 1;
+
+        long length = writer.getDataBytes();
+        if (length >= maxSegmentBytes || (length >= minSegmentBytes && silentFrames >= pauseFrames)) {
+            completeSegment();
+        }
+    }
+
+    private WavWriter currentSegment() throws IOException {
+        if (segment == null) {
+            segment = new WavWriter(segmentPath(segmentIndex), sampleRate, channels, 16);
+        }
+        return segment;
+    }
+
+    private void completeSegment() throws IOException {
+        Path path = segment.getPath();
+        segment.close();
+        segment = null;
+        silentFrames = 0;
+        listener.segmentCompleted(segmentIndex++, path);
+    }
+
+    private Path segmentPath(int index) {
+        String name = recordingFile.getFileName().toString();
+        int lastDot = name.lastIndexOf('.');
+        String base = lastDot > 0 ? name.substring(0, lastDot) : name;
+        return recordingFile.resolveSibling(String.format("%s_seg%03d.wav", base, index));
+    }
+}
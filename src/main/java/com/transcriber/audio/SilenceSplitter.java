@@ -0,0 +1,133 @@
+package com.transcriber.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Splits a 16-bit PCM WAV recording into chunks at pauses.
+ * <p>
+ * The recording is classified frame by frame with a {@link VoiceActivityDetector}.
+ * Each chunk ends in the middle of the longest pause found between its minimum and
+ * maximum length, or hard at the maximum length if there is no pause, so words
+ * are not cut in half.
+ */
+public class SilenceSplitter {
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * A byte range of the recording's PCM data.
+     *
+     * @param index Position of the chunk in the recording
+     * @param offset Absolute file offset of the first byte
+     * @param length Length in bytes, a whole number of sample frames
+     */
+    public record Chunk(int index, long offset, int length) {
+    }
+
+    private SilenceSplitter() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Compute chunk boundaries for a recording.
+     *
+     * @param wav The recording (16-bit PCM)
+     * @param minSeconds Shortest chunk worth ending at a pause
+     * @param maxSeconds Longest allowed chunk
+     * @return Chunks covering the whole data chunk, in order
+     * @throws IOException If reading fails or the file is not 16-bit PCM
+     */
+    public static List<Chunk> split(WavFile wav, double minSeconds, double maxSeconds) throws IOException {
+        wav.require16Bit();
+        VoiceActivityDetector detector = new VoiceActivityDetector(wav.sampleRate(), wav.channels());
+        int frameBytes = detector.getFrameBytes();
+        BitSet speech = classify(wav, detector);
+        int frameCount = (int) (wav.dataLength() / frameBytes);
+
+        double framesPerSecond = 1000.0 / VoiceActivityDetector.FRAME_MS;
+        int maxFrames = Math.max(1, (int) (maxSeconds * framesPerSecond));
+        int minFrames = Math.min(maxFrames, Math.max(1, (int) (minSeconds * framesPerSecond)));
+
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (frameCount - start > maxFrames) {
+            int end = cutPoint(speech, start + minFrames, start + maxFrames);
+            chunks.add(new Chunk(chunks.size(), wav.dataOffset() + (long) start * frameBytes,
+                    (end - start) * frameBytes));
+            start = end;
+        }
+        // The last chunk also takes any partial frame at the end of the data
+        long tail = wav.dataLength() - (long) start * frameBytes;
+        if (tail > 0) {
+            chunks.add(new Chunk(chunks.size(), wav.dataOffset() + (long) start * frameBytes, (int) tail));
+        }
+        return chunks;
+    }
+
+    /**
+     * Find the middle of the longest silent run within [from, to], or to if the
+     * window holds no silence.
+     */
+    private static int cutPoint(BitSet speech, int from, int to) {
+        int bestStart = -1;
+        int bestLength = 0;
+        int run = speech.nextClearBit(from);
+        while (run < to) {
+            int next = speech.nextSetBit(run);
+            int runEnd = next < 0 ? to : Math.min(next, to);
+            if (runEnd - run > bestLength) {
+                bestStart = run;
+                bestLength = runEnd - run;
+            }
+            if (runEnd >= to) {
+                break;
+            }
+            run = speech.nextClearBit(runEnd);
+        }
+        return bestStart < 0 ? to : bestStart + bestLength / 2;
+    }
+
+    /**
+     * Run the detector over the whole recording; bit i is set when frame i is speech.
+     */
+    private static BitSet classify(WavFile wav, VoiceActivityDetector detector) throws IOException {
+        int frameBytes = detector.getFrameBytes();
+        BitSet speech = new BitSet();
+        int readSize = READ_BUFFER_BYTES - READ_BUFFER_BYTES % frameBytes;
+        byte[] block = new byte[readSize];
+        ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+        int frame = 0;
+
+        try (FileChannel in = FileChannel.open(wav.path(), StandardOpenOption.READ)) {
+            long position = wav.dataOffset();
+            long end = wav.dataOffset() + wav.dataLength();
+            while (position < end) {
+                blockBuffer.clear().limit((int) Math.min(readSize, end - position));
+                while (blockBuffer.hasRemaining()) {
+                    if (in.read(blockBuffer, position + blockBuffer.position()) < 0) {
+                        break;
+                    }
+                }
+                int filled = blockBuffer.position();
+                if (filled == 0) {
+                    break;
+                }
+                position += filled;
+
+                int frames = filled / frameBytes;
+                for (int f = 0; f < frames; f++, frame++) {
+                    if (detector.isSpeech(block, f * frameBytes)) {
+                        speech.set(frame);
+                    }
+                }
+            }
+        }
+        return speech;
+    }
+}
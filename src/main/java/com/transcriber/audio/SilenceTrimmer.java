@@ -0,0 +1,174 @@
+package com.transcriber.audio;
+
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Voice-activity based silence trimming for 16-bit PCM WAV recordings.
+ * <p>
+ * The recording is processed in a single streaming pass. Silent stretches longer
+ * than {@link Config#SILENCE_MAX_GAP_MS} are collapsed to {@link Config#SILENCE_KEEP_GAP_MS},
+ * keeping half of the kept gap on each side so word boundaries stay natural.
+ */
+public class SilenceTrimmer {
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Outcome of a trim pass.
+     *
+     * @param inputBytes PCM bytes read
+     * @param outputBytes PCM bytes written
+     * @param bytesPerSecond PCM byte rate of the recording
+     */
+    public record Result(long inputBytes, long outputBytes, int bytesPerSecond) {
+
+        public long bytesRemoved() {
+            return inputBytes - outputBytes;
+        }
+
+        public double secondsRemoved() {
+            return (double) bytesRemoved() / bytesPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Removed %d bytes (%.1f s) of silence", bytesRemoved(), secondsRemoved());
+        }
+    }
+
+    private SilenceTrimmer() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Write a copy of a recording with long silences collapsed.
+     *
+     * @param input Source WAV file (16-bit PCM)
+     * @param output Destination WAV file, overwritten if present
+     * @return Statistics about the removed audio
+     * @throws IOException If reading or writing fails, or the input is not 16-bit PCM
+     */
+    public static Result trim(Path input, Path output) throws IOException {
+        WavFile wav = WavFile.open(input);
+        wav.require16Bit();
+
+        VoiceActivityDetector detector = new VoiceActivityDetector(wav.sampleRate(), wav.channels());
+        int frameBytes = detector.getFrameBytes();
+        int maxGapFrames = Math.max(1, Config.SILENCE_MAX_GAP_MS / VoiceActivityDetector.FRAME_MS);
+        int keepFrames = Math.min(maxGapFrames, Config.SILENCE_KEEP_GAP_MS / VoiceActivityDetector.FRAME_MS);
+        int headFrames = keepFrames / 2;
+        int tailFrames = keepFrames - headFrames;
+
+        // Pending silence: the whole gap until it exceeds maxGapFrames, then a rolling tail
+        byte[] pending = new byte[maxGapFrames * frameBytes];
+        int pendingFrames = 0;
+        int tailStart = 0;
+        boolean collapsing = false;
+
+        int readSize = READ_BUFFER_BYTES - READ_BUFFER_BYTES % frameBytes;
+        byte[] block = new byte[readSize];
+        ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+
+        int remainderOffset = 0;
+        int remainder = 0;
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             WavWriter writer = new WavWriter(output, wav.sampleRate(), wav.channels(), 16)) {
+            long position = wav.dataOffset();
+            long end = wav.dataOffset() + wav.dataLength();
+            while (position < end) {
+                blockBuffer.clear().limit((int) Math.min(readSize, end - position));
+                while (blockBuffer.hasRemaining()) {
+                    if (in.read(blockBuffer, position + blockBuffer.position()) < 0) {
+                        break;
+                    }
+                }
+                int filled = blockBuffer.position();
+                if (filled == 0) {
+                    break;
+                }
+                position += filled;
+
+                int frames = filled / frameBytes;
+                int speechRunStart = -1;
+                for (int f = 0; f < frames; f++) {
+                    int offset = f * frameBytes;
+                    if (detector.isSpeech(block, offset)) {
+                        if (speechRunStart < 0) {
+                            // Speech resumes: release the silence held back before it
+                            if (collapsing) {
+                                writeRing(writer, pending, tailStart, pendingFrames, tailFrames, frameBytes);
+                            } else if (pendingFrames > 0) {
+                                writer.write(pending, 0, pendingFrames * frameBytes);
+                            }
+                            pendingFrames = 0;
+                            collapsing = false;
+                            speechRunStart = offset;
+                        }
+                        continue;
+                    }
+                    if (speechRunStart >= 0) {
+                        writer.write(block, speechRunStart, offset - speechRunStart);
+                        speechRunStart = -1;
+                    }
+                    if (!collapsing && pendingFrames == maxGapFrames) {
+                        // Gap is long enough to collapse: keep its head, then roll a short tail
+                        writer.write(pending, 0, headFrames * frameBytes);
+                        collapsing = true;
+                        pendingFrames = 0;
+                        tailStart = 0;
+                    }
+                    if (collapsing) {
+                        if (tailFrames > 0) {
+                            int slot = (tailStart + pendingFrames) % tailFrames;
+                            System.arraycopy(block, offset, pending, slot * frameBytes, frameBytes);
+                            if (pendingFrames < tailFrames) {
+                                pendingFrames++;
+                            } else {
+                                tailStart = (tailStart + 1) % tailFrames;
+                            }
+                        }
+                    } else {
+                        System.arraycopy(block, offset, pending, pendingFrames * frameBytes, frameBytes);
+                        pendingFrames++;
+                    }
+                }
+                if (speechRunStart >= 0) {
+                    writer.write(block, speechRunStart, frames * frameBytes - speechRunStart);
+                }
+                // Only the last block can end with a partial frame
+                remainderOffset = frames * frameBytes;
+                remainder = filled - remainderOffset;
+            }
+            // A trailing gap under the limit is kept; a collapsed one already wrote its head
+            if (!collapsing && pendingFrames > 0) {
+                writer.write(pending, 0, pendingFrames * frameBytes);
+            }
+            if (remainder > 0) {
+                writer.write(block, remainderOffset, remainder);
+            }
+            return new Result(wav.dataLength(), writer.getDataBytes(), wav.sampleRate() * wav.frameSize());
+        }
+    }
+
+    /**
+     * Write the frames held in the rolling tail, oldest first.
+     */
+    private static void writeRing(WavWriter writer, byte[] ring, int start, int count, int capacity,
+                                  int frameBytes) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        int firstPart = Math.min(count, capacity - start);
+        writer.write(ring, start * frameBytes, firstPart * frameBytes);
+        if (firstPart < count) {
+            writer.write(ring, 0, (count - firstPart) * frameBytes);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.transcriber.audio;
+
+import com.transcriber.config.Config;
+
+/**
+ * Frame-based voice activity detector for 16-bit little-endian PCM.
+ * <p>
+ * A frame is speech when its energy clears an adaptive noise floor, or when it is
+ * quieter but has the high zero-crossing rate of unvoiced consonants. A short
+ * hangover keeps word endings from being classified as silence.
+ */
+public class VoiceActivityDetector {
+
+    public static final int FRAME_MS = 20;
+
+    private static final int HANGOVER_FRAMES = 200 / FRAME_MS;
+    // Speech must be this many times (6 dB) above the tracked noise floor
+    private static final double NOISE_FLOOR_FACTOR = 4.0;
+    // Zero crossings per sample above which a quiet frame is treated as a fricative
+    private static final double FRICATIVE_ZCR = 0.25;
+
+    private final int frameBytes;
+    private final int frameSamples;
+    private final double energyThreshold;
+    private double noiseFloor;
+    private int hangover;
+
+    /**
+     * Create a detector using the thresholds from Config.
+     *
+     * @param sampleRate Sample rate in Hz
+     * @param channels Number of interleaved channels
+     */
+    public VoiceActivityDetector(int sampleRate, int channels) {
+        this.frameSamples = sampleRate * FRAME_MS / 1000 * channels;
+        this.frameBytes = frameSamples * 2;
+        double amplitude = 32768.0 * Math.pow(10.0, Config.VAD_ENERGY_THRESHOLD_DBFS / 20.0);
+        this.energyThreshold = amplitude * amplitude;
+        reset();
+    }
+
+    /**
+     * Get the size of one analysis frame in bytes.
+     */
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    /**
+     * Reset the adaptive state before analyzing a new stream.
+     */
+    public void reset() {
+        // Start where the absolute threshold applies; quieter rooms pull the floor down
+        noiseFloor = energyThreshold / NOISE_FLOOR_FACTOR;
+        hangover = 0;
+    }
+
+    /**
+     * Classify one frame of {@link #getFrameBytes()} bytes.
+     *
+     * @param pcm Array holding 16-bit little-endian samples
+     * @param offset Offset of the frame in the array
+     * @return true if the frame contains speech
+     */
+    public boolean isSpeech(byte[] pcm, int offset) {
+        long energy = 0;
+        int crossings = 0;
+        int previous = 0;
+        int end = offset + frameBytes;
+        for (int i = offset; i < end; i += 2) {
+            int sample = (short) ((pcm[i] & 0xFF) | (pcm[i + 1] << 8));
+            energy += (long) sample * sample;
+            if ((sample ^ previous) < 0) {
+                crossings++;
+            }
+            previous = sample;
+        }
+        double meanSquare = (double) energy / frameSamples;
+        double zcr = (double) crossings / frameSamples;
+
+        if (meanSquare < noiseFloor) {
+            noiseFloor = meanSquare;
+        }
+        double loudThreshold = Math.max(energyThreshold, noiseFloor * NOISE_FLOOR_FACTOR);
+        boolean voiced = meanSquare > loudThreshold;
+        boolean fricative = zcr > FRICATIVE_ZCR && meanSquare > loudThreshold / NOISE_FLOOR_FACTOR;
+
+        if (voiced || fricative) {
+            hangover = HANGOVER_FRAMES;
+            return true;
+        }
+        // Let the noise floor drift up slowly during silence so it follows the room
+        noiseFloor += (meanSquare - noiseFloor) * 0.02;
+        if (hangover > 0) {
+            hangover--;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.transcriber.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parsed header of a PCM WAV file: format fields and the location of the data chunk.
+ */
+public record WavFile(Path path, int sampleRate, int channels, int bitsPerSample,
+                      long dataOffset, long dataLength) {
+
+    /**
+     * Read and validate the header of a PCM WAV file.
+     *
+     * @param path The WAV file
+     * @return The parsed header
+     * @throws IOException If the file cannot be read or is not uncompressed PCM
+     */
+    public static WavFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer chunk = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, chunk.limit(12), 0, path);
+            if (chunk.getInt(0) != 0x46464952 /* RIFF */ || chunk.getInt(8) != 0x45564157 /* WAVE */) {
+                throw new IOException("Not a WAV file: " + path);
+            }
+
+            int sampleRate = 0;
+            int channels = 0;
+            int bitsPerSample = 0;
+            long position = 12;
+            while (position + 8 <= fileSize) {
+                chunk.clear().limit(8);
+                readFully(channel, chunk, position, path);
+                int id = chunk.getInt(0);
+                long size = Integer.toUnsignedLong(chunk.getInt(4));
+                long body = position + 8;
+                if (id == 0x20746D66 /* fmt  */) {
+                    chunk.clear().limit(16);
+                    readFully(channel, chunk, body, path);
+                    if (chunk.getShort(0) != 1) {
+                        throw new IOException("Only PCM WAV files are supported: " + path);
+                    }
+                    channels = chunk.getShort(2);
+                    sampleRate = chunk.getInt(4);
+                    bitsPerSample = chunk.getShort(14);
+                } else if (id == 0x61746164 /* data */) {
+                    if (sampleRate == 0) {
+                        throw new IOException("WAV data chunk precedes fmt chunk: " + path);
+                    }
+                    // A header never finalized by WavWriter reports 0; fall back to the file size
+                    long available = fileSize - body;
+                    long length = size == 0 || size > available ? available : size;
+                    int blockAlign = Math.max(1, channels * bitsPerSample / 8);
+                    length -= length % blockAlign;
+                    return new WavFile(path, sampleRate, channels, bitsPerSample, body, length);
+                }
+                position = body + size + (size & 1);
+            }
+            throw new IOException("WAV file has no data chunk: " + path);
+        }
+    }
+
+    /**
+     * Get the size of one frame (one sample for every channel) in bytes.
+     */
+    public int frameSize() {
+        return channels * bitsPerSample / 8;
+    }
+
+    /**
+     * Get the number of frames in the data chunk.
+     */
+    public long frameCount() {
+        return dataLength / frameSize();
+    }
+
+    /**
+     * Get the duration of the audio in seconds.
+     */
+    public double durationSeconds() {
+        return (double) frameCount() / sampleRate;
+    }
+
+    /**
+     * Fail unless the file holds 16-bit PCM, the only layout the audio stages process.
+     */
+    public void require16Bit() throws IOException {
+        if (bitsPerSample != 16) {
+            throw new IOException("Only 16-bit PCM is supported, got " + bitsPerSample + "-bit: " + path);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path path)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated WAV file: " + path);
+            }
+        }
+    }
+}
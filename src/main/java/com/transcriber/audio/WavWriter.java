@@ -0,0 +1,208 @@
+package com.transcriber.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming WAV (RIFF, PCM) writer.
+ * PCM is appended through a FileChannel as it arrives and the RIFF/data size
+ * fields are patched in place, so memory use is constant and a file left behind
+ * by a crash can be repaired with {@link #repair(Path)}.
+ */
+public class WavWriter implements Closeable {
+
+    static final int HEADER_SIZE = 44;
+
+    // Patch the header sizes roughly once per second of 16kHz mono audio
+    private static final long HEADER_PATCH_INTERVAL_BYTES = 32_000;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer sizeField = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    private long dataBytes;
+    private long bytesSincePatch;
+    private boolean closed;
+
+    /**
+     * Create (or truncate) a WAV file and write a header with zero sizes.
+     *
+     * @param path Target file
+     * @param sampleRate Sample rate in Hz
+     * @param channels Number of channels
+     * @param bitsPerSample Bits per sample (e.g. 16)
+     * @throws IOException If the file cannot be created
+     */
+    public WavWriter(Path path, int sampleRate, int channels, int bitsPerSample) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = buildHeader(sampleRate, channels, bitsPerSample, 0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the file being written.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get the number of PCM bytes written so far.
+     */
+    public long getDataBytes() {
+        return dataBytes;
+    }
+
+    /**
+     * Append all remaining bytes of the buffer as PCM data.
+     */
+    public void write(ByteBuffer pcm) throws IOException {
+        int length = pcm.remaining();
+        while (pcm.hasRemaining()) {
+            channel.write(pcm);
+        }
+        dataBytes += length;
+        bytesSincePatch += length;
+        if (bytesSincePatch >= HEADER_PATCH_INTERVAL_BYTES) {
+            patchHeader();
+        }
+    }
+
+    /**
+     * Append PCM data from a byte array.
+     */
+    public void write(byte[] data, int offset, int length) throws IOException {
+        write(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Patch the header sizes and force the data to the storage device.
+     */
+    public void sync() throws IOException {
+        patchHeader();
+        channel.force(false);
+    }
+
+    /**
+     * Patch the final header sizes, force to disk and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void patchHeader() throws IOException {
+        writeSize(4, riffSize(dataBytes));
+        writeSize(40, dataBytes);
+        bytesSincePatch = 0;
+    }
+
+    private void writeSize(long position, long value) throws IOException {
+        sizeField.clear();
+        sizeField.putInt((int) Math.min(value, 0xFFFFFFFFL));
+        sizeField.flip();
+        while (sizeField.hasRemaining()) {
+            channel.write(sizeField, position + sizeField.position());
+        }
+    }
+
+    /**
+     * Fix the RIFF and data sizes of a WAV file written by this class whose header
+     * was not finalized (e.g. the application crashed while recording).
+     *
+     * @param path The WAV file to repair
+     * @return true if the header was changed, false if it was already consistent
+     * @throws IOException If the file cannot be read or written, or is not a WAV file
+     */
+    public static boolean repair(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a WAV file: " + path);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated WAV header: " + path);
+                }
+            }
+            if (header.getInt(0) != 0x46464952 /* RIFF */ || header.getInt(36) != 0x61746164 /* data */) {
+                throw new IOException("Unsupported WAV layout: " + path);
+            }
+            int blockAlign = Math.max(1, header.getShort(32));
+            long dataBytes = fileSize - HEADER_SIZE;
+            dataBytes -= dataBytes % blockAlign;
+            if (Integer.toUnsignedLong(header.getInt(40)) == dataBytes
+                    && Integer.toUnsignedLong(header.getInt(4)) == riffSize(dataBytes)) {
+                return false;
+            }
+            channel.truncate(HEADER_SIZE + dataBytes);
+            header.putInt(4, (int) riffSize(dataBytes));
+            header.putInt(40, (int) dataBytes);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(false);
+            return true;
+        }
+    }
+
+    /**
+     * Check whether a file looks like a WAV file by its extension and size.
+     */
+    public static boolean isWavFile(Path path) {
+        try {
+            return path.toString().endsWith(".wav") && Files.isRegularFile(path)
+                    && Files.size(path) >= HEADER_SIZE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long riffSize(long dataBytes) {
+        return 36 + dataBytes;
+    }
+
+    private static ByteBuffer buildHeader(int sampleRate, int channels, int bitsPerSample, long dataBytes) {
+        int blockAlign = channels * bitsPerSample / 8;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952);                  // "RIFF"
+        header.putInt((int) riffSize(dataBytes));
+        header.putInt(0x45564157);                  // "WAVE"
+        header.putInt(0x20746D66);                  // "fmt "
+        header.putInt(16);                          // PCM fmt chunk size
+        header.putShort((short) 1);                 // PCM
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);     // byte rate
+        header.putShort((short) blockAlign);
+        header.putShort((short) bitsPerSample);
+        header.putInt(0x61746164);                  // "data"
+        header.putInt((int) dataBytes);
+        header.flip();
+        return header;
+    }
+}
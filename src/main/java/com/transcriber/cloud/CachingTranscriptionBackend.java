@@ -0,0 +1,120 @@
+package com.transcriber.cloud;
+
+import com.transcriber.audio.WavFile;
+import com.transcriber.audit.AuditLogger;
+import com.transcriber.config.Config;
+import com.transcriber.file.TranscriptCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Backend decorator that answers repeated recordings from a {@link TranscriptCache}.
+ * A recording sent again, e.g. after templating or saving failed, returns its
+ * stored transcript without another upload or recognition.
+ */
+public class CachingTranscriptionBackend implements TranscriptionBackend {
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final TranscriptionBackend delegate;
+    private final TranscriptCache cache;
+
+    /**
+     * @param delegate Backend used on a cache miss
+     * @param cache Cache of transcripts
+     */
+    public CachingTranscriptionBackend(TranscriptionBackend delegate, TranscriptCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public CompletableFuture<Transcript> transcribeAsync(Path audioPath, String patient, Consumer<String> statusCallback) {
+        return cached(audioPath, patient, statusCallback,
+                () -> delegate.transcribeAsync(audioPath, patient, statusCallback));
+    }
+
+    @Override
+    public CompletableFuture<Transcript> resumeAsync(Path audioPath, String patient, Consumer<String> statusCallback) {
+        return cached(audioPath, patient, statusCallback,
+                () -> delegate.resumeAsync(audioPath, patient, statusCallback));
+    }
+
+    @Override
+    public void abandon(Path audioPath) {
+        delegate.abandon(audioPath);
+    }
+
+    /**
+     * Answer from the cache, or run the transcription and store its result.
+     */
+    private CompletableFuture<Transcript> cached(Path audioPath, String patient, Consumer<String> statusCallback,
+                                                 Supplier<CompletableFuture<Transcript>> transcription) {
+        return CompletableFuture.supplyAsync(() -> cacheKey(audioPath), EXECUTOR).thenCompose(key -> {
+            if (key == null) {
+                return transcription.get();
+            }
+            Transcript cached = lookup(key);
+            if (cached != null) {
+                AuditLogger.log("transcript_cache_hit", audioPath, patient != null ? patient : "",
+                        "Transcript served from local cache");
+                if (statusCallback != null) {
+                    statusCallback.accept("Completed (cached)");
+                }
+                return CompletableFuture.completedFuture(cached);
+            }
+            return transcription.get().thenApply(transcript -> {
+                cache.put(key, transcript.toBytes());
+                return transcript;
+            });
+        });
+    }
+
+    /**
+     * Get a cached transcript, treating an entry that cannot be parsed as a miss.
+     */
+    private Transcript lookup(String key) {
+        byte[] data = cache.get(key);
+        if (data == null) {
+            return null;
+        }
+        try {
+            return Transcript.fromBytes(data);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable cached transcript " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hash the recording together with everything that shapes its transcript.
+     *
+     * @return The key, or null if the file is not a readable WAV (not cached)
+     */
+    private String cacheKey(Path audioPath) {
+        WavFile wav;
+        try {
+            wav = WavFile.open(audioPath);
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            return TranscriptCache.key(wav, delegate.getName(), Config.GCS_MODEL, Config.LANGUAGE_CODE,
+                    Config.TRIM_SILENCE);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
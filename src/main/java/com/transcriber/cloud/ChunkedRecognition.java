@@ -0,0 +1,154 @@
+package com.transcriber.cloud;
+
+import com.google.cloud.speech.v1.RecognitionAudio;
+import com.google.cloud.speech.v1.RecognitionConfig;
+import com.google.cloud.speech.v1.RecognizeResponse;
+import com.google.cloud.speech.v1.SpeechClient;
+import com.google.protobuf.ByteString;
+import com.transcriber.audio.SilenceSplitter;
+import com.transcriber.audio.WavFile;
+import com.transcriber.audit.AuditLogger;
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Parallel synchronous recognition of long recordings.
+ * <p>
+ * The recording is split at pauses into chunks under the synchronous Recognize
+ * limit, the chunks are sent inline with at most {@link Config#CHUNKED_FAN_OUT}
+ * requests in flight, and their results are joined in order. Wall time grows with
+ * the audio length divided by the fan-out rather than with the audio length.
+ */
+public class ChunkedRecognition {
+
+    private ChunkedRecognition() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Whether a recording should be transcribed in chunks: the mode is enabled and
+     * the file is a WAV longer than {@link Config#CHUNKED_MIN_SECONDS}.
+     */
+    static boolean applies(Path audioPath) {
+        if (!Config.CHUNKED_RECOGNITION) {
+            return false;
+        }
+        try {
+            return WavFile.open(audioPath).durationSeconds() > Config.CHUNKED_MIN_SECONDS;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Split a WAV recording at pauses and recognize the chunks concurrently.
+     *
+     * @param client Speech client to send Recognize requests to
+     * @param wavPath The recording (16-bit PCM WAV)
+     * @param patient Patient identifier for audit logging
+     * @param statusCallback Optional callback for progress updates
+     * @param executor Executor for the blocking chunk reads and requests
+     * @return Future completed with the transcript, one result per line, with word
+     *         times relative to the whole recording
+     */
+    public static CompletableFuture<Transcript> transcribeAsync(SpeechClient client, Path wavPath, String patient,
+                                                                Consumer<String> statusCallback, Executor executor) {
+        WavFile wav;
+        List<SilenceSplitter.Chunk> chunks;
+        try {
+            wav = WavFile.open(wavPath);
+            chunks = SilenceSplitter.split(wav, Config.CHUNK_MIN_SECONDS, Config.CHUNK_MAX_SECONDS);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        RecognitionConfig config = GCloudTranscriber.recognitionConfig(RecognitionConfig.AudioEncoding.LINEAR16)
+                .toBuilder()
+                .setSampleRateHertz(wav.sampleRate())
+                .setAudioChannelCount(wav.channels())
+                .build();
+        Semaphore inFlight = new Semaphore(Math.max(1, Config.CHUNKED_FAN_OUT));
+        AtomicInteger completed = new AtomicInteger();
+        setStatus(statusCallback, String.format("Transcribing %d chunks…", chunks.size()));
+
+        CompletableFuture<?>[] results = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> recognize(client, wav, chunk, config, inFlight),
+                        executor).thenApply(transcript -> {
+                            setStatus(statusCallback, String.format("Transcribed %d/%d chunks",
+                                    completed.incrementAndGet(), chunks.size()));
+                            return transcript;
+                        }))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(results).thenApply(done -> {
+            List<Transcript> parts = new ArrayList<>(results.length);
+            for (CompletableFuture<?> result : results) {
+                parts.add((Transcript) result.join());
+            }
+            AuditLogger.log("chunked_recognize", wavPath, patient != null ? patient : "",
+                    String.format("Recognized %d chunk(s) of %.1f s audio inline", chunks.size(),
+                            wav.durationSeconds()));
+            return Transcript.join(parts);
+        });
+    }
+
+    /**
+     * Read one chunk and recognize it, holding a fan-out permit for the duration so
+     * that at most that many chunks are in memory and in flight.
+     */
+    private static Transcript recognize(SpeechClient client, WavFile wav, SilenceSplitter.Chunk chunk,
+                                    RecognitionConfig config, Semaphore inFlight) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(new RuntimeException("Transcription interrupted", e));
+        }
+        try {
+            RecognitionAudio audio = RecognitionAudio.newBuilder()
+                    .setContent(ByteString.copyFrom(read(wav, chunk)))
+                    .build();
+            RecognizeResponse response = client.recognize(config, audio);
+            long startMs = (chunk.offset() - wav.dataOffset()) * 1000 / ((long) wav.sampleRate() * wav.frameSize());
+            return GCloudTranscriber.extractTranscript(response.getResultsList()).delay((int) startMs);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (RuntimeException e) {
+            throw new CompletionException(new RuntimeException(
+                    "Chunk " + (chunk.index() + 1) + " failed: " + e.getMessage(), e));
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static ByteBuffer read(WavFile wav, SilenceSplitter.Chunk chunk) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(chunk.length());
+        try (FileChannel in = FileChannel.open(wav.path(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer, chunk.offset() + buffer.position()) < 0) {
+                    throw new IOException("Truncated WAV file: " + wav.path());
+                }
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void setStatus(Consumer<String> callback, String message) {
+        if (callback != null) {
+            callback.accept(message);
+        }
+    }
+}
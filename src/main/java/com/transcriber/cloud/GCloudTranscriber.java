@@ -1,77 +1,412 @@
 package com.transcriber.cloud;
 
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.longrunning.OperationFuture;
+import com.google.api.gax.longrunning.OperationSnapshot;
+import com.google.api.gax.longrunning.OperationTimedPollAlgorithm;
+import com.google.api.gax.retrying.RetrySettings;
 import com.google.cloud.speech.v1.*;
-import com.google.cloud.storage.Blob;
+import com.google.cloud.BaseServiceException;
+import com.google.cloud.RestorableState;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Bucket;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.transcriber.audio.FlacEncoder;
+import com.transcriber.audio.SilenceTrimmer;
+import com.transcriber.audio.WavFile;
 import com.transcriber.audit.AuditLogger;
 import com.transcriber.config.Config;
+import com.transcriber.file.FileManager;
+import com.transcriber.file.JobJournal;
+import com.transcriber.file.WordTimings;
+import org.threeten.bp.Duration;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 /**
- * Google Cloud Storage + Speech-to-Text integration.
+ * Google Cloud Storage + Speech-to-Text integration, used through
+ * {@link GoogleTranscriptionBackend}.
  */
 public class GCloudTranscriber {
     
-    private static final SpeechClient speechClient;
-    private static final Storage storageClient;
+    // Blocking stages (audio preparation, upload, blob deletion) run on virtual threads
+    private static final ExecutorService IO_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
     
-    static {
-        try {
-            speechClient = SpeechClient.create();
-            storageClient = StorageOptions.getDefaultInstance().getService();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to initialize Google Cloud clients: " + e.getMessage(), e);
+    // Bucket handle, looked up once instead of once per transcription
+    private static volatile Bucket bucket;
+    
+    /**
+     * An uploaded recording: the original file, the file actually uploaded and its blob.
+     */
+    private record Upload(Path audioPath, Path uploadPath, BlobId blob, boolean flac) {
+    }
+    
+    /**
+     * Holder for the Google Cloud clients, created on first use so that helpers like
+     * {@link #recognitionConfig} work without credentials (e.g. against a local stand-in).
+     */
+    private static final class Clients {
+        private static final SpeechClient speechClient;
+        private static final Storage storageClient;
+        
+        static {
+            try {
+                SpeechSettings.Builder settings = SpeechSettings.newBuilder();
+                settings.longRunningRecognizeOperationSettings().setPollingAlgorithm(
+                        OperationTimedPollAlgorithm.create(RetrySettings.newBuilder()
+                                .setInitialRetryDelay(Duration.ofMillis(Config.OPERATION_POLL_INITIAL_MS))
+                                .setRetryDelayMultiplier(1.5)
+                                .setMaxRetryDelay(Duration.ofMillis(Config.OPERATION_POLL_MAX_MS))
+                                .setInitialRpcTimeout(Duration.ZERO)
+                                .setRpcTimeoutMultiplier(1.0)
+                                .setMaxRpcTimeout(Duration.ZERO)
+                                .setTotalTimeout(Duration.ofHours(6))
+                                .build()));
+                speechClient = SpeechClient.create(settings.build());
+                storageClient = StorageOptions.getDefaultInstance().getService();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to initialize Google Cloud clients: " + e.getMessage(), e);
+            }
         }
     }
     
     /**
-     * Upload an audio file, run transcription, return the transcript text.
+     * Transcribe an audio file without blocking the caller.
+     * Short WAV clips within the inline request limit are sent directly to synchronous
+     * recognition; long ones may be recognized in parallel chunks (see
+     * {@link ChunkedRecognition}); everything else is uploaded to GCS for long-running
+     * recognition. Audio preparation and upload run on a virtual thread; recognition completes
+     * through the operation's callback, followed by blob deletion and audit logging.
+     * Temporary files and the uploaded blob are removed whether or not recognition succeeds.
      * 
      * @param audioPath Path to the audio file
      * @param patient Patient identifier for audit logging
      * @param statusCallback Optional callback for status updates
-     * @return The transcribed text
-     * @throws IOException If file operations fail
-     * @throws RuntimeException If transcription fails
+     * @return Future completed with the transcript and word timings, or exceptionally
+     *         with the IOException/RuntimeException that caused the failure
      */
-    public static String uploadAndTranscribe(Path audioPath, String patient, Consumer<String> statusCallback) 
-            throws IOException {
+    public static CompletableFuture<Transcript> transcribeAsync(Path audioPath, String patient, 
+            Consumer<String> statusCallback) {
         if (!Files.exists(audioPath)) {
-            throw new FileNotFoundException("Audio file not found: " + audioPath);
+            return CompletableFuture.failedFuture(new FileNotFoundException("Audio file not found: " + audioPath));
         }
         
-        setStatus(statusCallback, "Uploading…");
-        
-        // Upload to Google Cloud Storage
-        Bucket bucket = storageClient.get(Config.GCS_BUCKET);
-        if (bucket == null) {
-            throw new RuntimeException("Bucket not found: " + Config.GCS_BUCKET);
+        if (fitsInline(audioPath)) {
+            return transcribeInline(audioPath, patient, statusCallback);
         }
+        if (ChunkedRecognition.applies(audioPath)) {
+            return transcribeChunked(audioPath, patient, statusCallback);
+        }
+        return transcribeViaStorage(audioPath, patient, statusCallback);
+    }
+    
+    /**
+     * Upload the recording to GCS and run long-running recognition on the blob.
+     */
+    private static CompletableFuture<Transcript> transcribeViaStorage(Path audioPath, String patient, 
+            Consumer<String> statusCallback) {
+        return CompletableFuture.supplyAsync(() -> upload(audioPath, patient, statusCallback), IO_EXECUTOR)
+                .thenCompose(upload -> recognize(upload, statusCallback)
+                        .whenCompleteAsync((transcript, error) -> cleanUp(upload, patient), IO_EXECUTOR))
+                .thenApply(transcript -> {
+                    setStatus(statusCallback, "Completed");
+                    return transcript;
+                });
+    }
+    
+    /**
+     * Whether a recording is short enough to send inline: a WAV no longer than
+     * {@link Config#INLINE_MAX_SECONDS} whose PCM data fits the request size limit.
+     * Trimming and FLAC encoding only make the payload smaller.
+     */
+    private static boolean fitsInline(Path audioPath) {
+        if (!Config.INLINE_RECOGNITION) {
+            return false;
+        }
+        try {
+            WavFile wav = WavFile.open(audioPath);
+            return wav.durationSeconds() <= Config.INLINE_MAX_SECONDS && wav.dataLength() <= Config.INLINE_MAX_BYTES;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Transcribe a short recording through synchronous recognition with the audio
+     * sent in the request, skipping the GCS upload, operation polling and blob deletion.
+     */
+    private static CompletableFuture<Transcript> transcribeInline(Path audioPath, String patient, 
+            Consumer<String> statusCallback) {
+        return CompletableFuture.supplyAsync(() -> {
+            Path prepared = null;
+            try {
+                prepared = prepareAudio(audioPath, patient, statusCallback);
+                boolean flac = prepared.getFileName().toString().endsWith(".flac");
+                return RecognizeRequest.newBuilder()
+                        .setConfig(recognitionConfig(flac 
+                                ? RecognitionConfig.AudioEncoding.FLAC : RecognitionConfig.AudioEncoding.LINEAR16))
+                        .setAudio(RecognitionAudio.newBuilder()
+                                .setContent(ByteString.copyFrom(Files.readAllBytes(prepared))))
+                        .build();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                if (prepared != null && !prepared.equals(audioPath)) {
+                    FileManager.secureDelete(prepared, patient);
+                }
+            }
+        }, IO_EXECUTOR).thenCompose(request -> {
+            setStatus(statusCallback, "Transcribing…");
+            CompletableFuture<Transcript> result = new CompletableFuture<>();
+            ApiFutures.addCallback(Clients.speechClient.recognizeCallable().futureCall(request), 
+                    new ApiFutureCallback<>() {
+                        @Override
+                        public void onSuccess(RecognizeResponse response) {
+                            AuditLogger.log("inline_recognize", audioPath, patient != null ? patient : "", 
+                                    String.format("Recognized %d bytes inline (%s), no GCS upload", 
+                                            request.getAudio().getContent().size(), 
+                                            request.getConfig().getEncoding()));
+                            result.complete(extractTranscript(response.getResultsList()));
+                        }
+                        
+                        @Override
+                        public void onFailure(Throwable t) {
+                            result.completeExceptionally(new RuntimeException(
+                                    "Failed to get transcription result: " + t.getMessage(), t));
+                        }
+                    }, MoreExecutors.directExecutor());
+            return result;
+        }).thenApply(transcript -> {
+            setStatus(statusCallback, "Completed");
+            return transcript;
+        });
+    }
+    
+    /**
+     * Transcribe a long recording through parallel synchronous recognition of its
+     * chunks instead of one long-running operation. Nothing is uploaded to GCS.
+     */
+    private static CompletableFuture<Transcript> transcribeChunked(Path audioPath, String patient, 
+            Consumer<String> statusCallback) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Config.TRIM_SILENCE ? trimSilence(audioPath, patient, statusCallback) : audioPath;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, IO_EXECUTOR).thenCompose(source -> ChunkedRecognition
+                .transcribeAsync(Clients.speechClient, source, patient, statusCallback, IO_EXECUTOR)
+                .whenComplete((transcript, error) -> {
+                    if (!source.equals(audioPath)) {
+                        FileManager.secureDelete(source, patient);
+                    }
+                }))
+                .thenApply(transcript -> {
+                    setStatus(statusCallback, "Completed");
+                    return transcript;
+                });
+    }
+    
+    /**
+     * Prepare the audio and upload it to Google Cloud Storage.
+     */
+    private static Upload upload(Path audioPath, String patient, Consumer<String> statusCallback) {
+        Path uploadPath = null;
+        try {
+            uploadPath = prepareAudio(audioPath, patient, statusCallback);
+            
+            setStatus(statusCallback, "Uploading…");
+            boolean flac = uploadPath.getFileName().toString().endsWith(".flac");
+            BlobInfo blob = BlobInfo.newBuilder(bucket(), uploadPath.getFileName().toString())
+                    .setContentType(flac ? "audio/flac" : "audio/wav")
+                    .build();
+            int resumes = uploadResumable(uploadPath, blob, statusCallback);
+            
+            AuditLogger.log("gcs_upload", uploadPath, patient != null ? patient : "", 
+                    resumes > 0 ? "Uploaded to GCS (resumed " + resumes + " time(s))" : "Uploaded to GCS");
+            JobJournal.uploaded(audioPath, blob.getBucket(), blob.getName(), uploadPath, flac);
+            return new Upload(audioPath, uploadPath, blob.getBlobId(), flac);
+        } catch (IOException | RuntimeException e) {
+            if (uploadPath != null && !uploadPath.equals(audioPath)) {
+                FileManager.secureDelete(uploadPath, patient);
+            }
+            throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+        }
+    }
+    
+    /**
+     * Get the configured bucket, looking it up on first use.
+     * A missing bucket is not cached so that it is found once created.
+     */
+    private static Bucket bucket() {
+        Bucket cached = bucket;
+        if (cached == null) {
+            cached = Clients.storageClient.get(Config.GCS_BUCKET);
+            if (cached == null) {
+                throw new RuntimeException("Bucket not found: " + Config.GCS_BUCKET);
+            }
+            bucket = cached;
+        }
+        return cached;
+    }
+    
+    /**
+     * Stream a file to GCS through a resumable upload session, one chunk per request.
+     * The channel state is checkpointed after every acknowledged chunk; on a transient
+     * failure the session is restored from the last checkpoint and the file is re-read
+     * from that offset rather than restarting the upload.
+     * 
+     * @return The number of times the upload was resumed
+     */
+    private static int uploadResumable(Path file, BlobInfo blob, Consumer<String> statusCallback) 
+            throws IOException {
+        int chunkSize = Config.UPLOAD_CHUNK_SIZE_KB * 1024;
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        int resumes = 0;
         
-        Blob blob = bucket.create(audioPath.getFileName().toString(), 
-                Files.readAllBytes(audioPath), 
-                "audio/wav");
-        
-        AuditLogger.log("gcs_upload", audioPath, patient != null ? patient : "", "Uploaded to GCS");
-        
-        String gcsUri = "gs://" + Config.GCS_BUCKET + "/" + audioPath.getFileName().toString();
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = source.size();
+            WriteChannel writer = Clients.storageClient.writer(blob);
+            writer.setChunkSize(chunkSize);
+            RestorableState<WriteChannel> checkpoint = writer.capture();
+            long acknowledged = 0;
+            
+            while (true) {
+                try {
+                    source.position(acknowledged);
+                    while (acknowledged < size) {
+                        buffer.clear();
+                        while (buffer.hasRemaining() && source.read(buffer) >= 0) {
+                            // fill a whole chunk so each write is flushed as one request
+                        }
+                        buffer.flip();
+                        int length = buffer.remaining();
+                        while (buffer.hasRemaining()) {
+                            writer.write(buffer);
+                        }
+                        acknowledged += length;
+                        checkpoint = writer.capture();
+                        if (size > chunkSize) {
+                            setStatus(statusCallback, String.format("Uploading… %d%%", acknowledged * 100 / size));
+                        }
+                    }
+                    writer.close();
+                    return resumes;
+                } catch (IOException | BaseServiceException e) {
+                    if (!isTransient(e) || resumes >= Config.UPLOAD_MAX_RETRIES) {
+                        throw e;
+                    }
+                    resumes++;
+                    System.err.println("Upload interrupted at " + acknowledged + " bytes, resuming: " 
+                            + e.getMessage());
+                    setStatus(statusCallback, String.format("Connection lost, resuming upload at %d%%…", 
+                            size > 0 ? acknowledged * 100 / size : 0));
+                    LockSupport.parkNanos(1_000_000_000L << Math.min(resumes - 1, 4));
+                    writer = checkpoint.restore();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Whether an upload failure is worth resuming: network errors and retryable
+     * service errors (timeouts, 5xx, rate limiting).
+     */
+    private static boolean isTransient(Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof BaseServiceException serviceException) {
+                return serviceException.isRetryable();
+            }
+        }
+        return e instanceof IOException;
+    }
+    
+    /**
+     * Run the optional pre-upload audio stages configured in Config
+     * (silence trimming, then FLAC encoding). Intermediate files are securely deleted.
+     * 
+     * @return The file to upload; the original recording if no stage is enabled
+     */
+    private static Path prepareAudio(Path audioPath, String patient, Consumer<String> statusCallback) 
+            throws IOException {
+        Path trimmed = Config.TRIM_SILENCE ? trimSilence(audioPath, patient, statusCallback) : audioPath;
+        if (!Config.ENCODE_FLAC) {
+            return trimmed;
+        }
+        setStatus(statusCallback, "Encoding FLAC…");
+        Path flac = derivedPath(audioPath, ".flac");
+        try {
+            FlacEncoder.Result result = FlacEncoder.encode(trimmed, flac);
+            AuditLogger.log("flac_encode", audioPath, patient != null ? patient : "", result.toString());
+            return flac;
+        } catch (IOException e) {
+            FileManager.secureDelete(flac, patient);
+            throw e;
+        } finally {
+            if (!trimmed.equals(audioPath)) {
+                FileManager.secureDelete(trimmed, patient);
+            }
+        }
+    }
+    
+    /**
+     * Write a copy of the recording with long silences collapsed.
+     * 
+     * @return The trimmed file, to be securely deleted by the caller
+     */
+    private static Path trimSilence(Path audioPath, String patient, Consumer<String> statusCallback) 
+            throws IOException {
+        setStatus(statusCallback, "Trimming silence…");
+        Path trimmed = derivedPath(audioPath, ".trimmed.wav");
+        try {
+            SilenceTrimmer.Result result = SilenceTrimmer.trim(audioPath, trimmed);
+            AuditLogger.log("silence_trim", audioPath, patient != null ? patient : "", result.toString());
+            return trimmed;
+        } catch (IOException e) {
+            FileManager.secureDelete(trimmed, patient);
+            throw e;
+        }
+    }
+    
+    /**
+     * Build a sibling path for a derived audio file, replacing the extension.
+     */
+    private static Path derivedPath(Path audioPath, String suffix) {
+        String name = audioPath.getFileName().toString();
+        int lastDot = name.lastIndexOf('.');
+        return audioPath.resolveSibling((lastDot > 0 ? name.substring(0, lastDot) : name) + suffix);
+    }
+    
+    /**
+     * Start long-running recognition of an uploaded file and complete when the
+     * operation finishes, without blocking a thread while it runs.
+     */
+    private static CompletableFuture<Transcript> recognize(Upload upload, Consumer<String> statusCallback) {
+        String gcsUri = "gs://" + upload.blob().getBucket() + "/" + upload.blob().getName();
         
         // Configure recognition
-        RecognitionConfig config = RecognitionConfig.newBuilder()
-                .setEncoding(RecognitionConfig.AudioEncoding.LINEAR16)
-                .setSampleRateHertz(Config.SAMPLE_RATE)
-                .setLanguageCode(Config.LANGUAGE_CODE)
-                .setModel(Config.GCS_MODEL)
-                .setEnableAutomaticPunctuation(true)
-                .build();
+        RecognitionConfig config = recognitionConfig(
+                upload.flac() ? RecognitionConfig.AudioEncoding.FLAC : RecognitionConfig.AudioEncoding.LINEAR16);
         
         RecognitionAudio audio = RecognitionAudio.newBuilder()
                 .setUri(gcsUri)
@@ -79,53 +414,185 @@ public class GCloudTranscriber {
         
         setStatus(statusCallback, "Transcribing…");
         
-        // Start long-running recognition
+        // Start long-running recognition; the client polls the operation in the background
         OperationFuture<LongRunningRecognizeResponse, LongRunningRecognizeMetadata> operation =
-                speechClient.longRunningRecognizeAsync(config, audio);
+                Clients.speechClient.longRunningRecognizeAsync(config, audio);
         
-        // Poll for completion
-        while (!operation.isDone()) {
-            try {
-                Thread.sleep(Config.POLL_INTERVAL_SEC * 1000);
-                setStatus(statusCallback, "Transcribing…");
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Transcription interrupted", e);
+        // Journal the operation name so the result can be collected after a restart
+        ApiFutures.addCallback(operation.getInitialFuture(), new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(OperationSnapshot snapshot) {
+                JobJournal.operationStarted(upload.audioPath(), snapshot.getName());
+            }
+            
+            @Override
+            public void onFailure(Throwable t) {
+                // reported through the operation itself
+            }
+        }, MoreExecutors.directExecutor());
+        return awaitOperation(operation, statusCallback);
+    }
+    
+    /**
+     * Complete with the transcript when a recognize operation finishes.
+     */
+    private static CompletableFuture<Transcript> awaitOperation(
+            OperationFuture<LongRunningRecognizeResponse, LongRunningRecognizeMetadata> operation, 
+            Consumer<String> statusCallback) {
+        CompletableFuture<Transcript> result = new CompletableFuture<>();
+        ApiFutures.addCallback(operation, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(LongRunningRecognizeResponse response) {
+                setStatus(statusCallback, "Processing result…");
+                result.complete(extractTranscript(response.getResultsList()));
+            }
+            
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(new RuntimeException(
+                        "Failed to get transcription result: " + t.getMessage(), t));
             }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+    
+    /**
+     * Finish a transcription interrupted by an app exit, using the job journal.
+     * If the recording's audio is still in the bucket, the journaled recognize
+     * operation is re-attached by name (or recognition is restarted on the blob if the
+     * operation is gone) instead of uploading again; otherwise the recording is
+     * transcribed from scratch.
+     * 
+     * @param audioPath Path to the recording
+     * @param patient Patient identifier for audit logging
+     * @param statusCallback Optional callback for status updates
+     * @return Future completed with the transcript and word timings
+     */
+    public static CompletableFuture<Transcript> resumeAsync(Path audioPath, String patient, 
+            Consumer<String> statusCallback) {
+        JobJournal.Entry entry = JobJournal.lookup(audioPath);
+        if (entry == null || !entry.isUploaded()) {
+            return transcribeAsync(audioPath, patient, statusCallback);
         }
+        Upload upload = new Upload(audioPath, entry.uploadPath(), BlobId.of(entry.bucket(), entry.blob()), 
+                entry.flac());
         
-        setStatus(statusCallback, "Processing result…");
-        
-        // Get results
-        LongRunningRecognizeResponse response;
-        try {
-            response = operation.get();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to get transcription result: " + e.getMessage(), e);
+        CompletableFuture<Transcript> recognition;
+        if (entry.operation() != null) {
+            setStatus(statusCallback, "Re-attaching to transcription…");
+            AuditLogger.log("operation_resume", audioPath, patient != null ? patient : "", 
+                    "Re-attached to operation " + entry.operation());
+            recognition = awaitOperation(Clients.speechClient.longRunningRecognizeOperationCallable()
+                    .resumeFutureCall(entry.operation()), statusCallback)
+                    .exceptionallyCompose(error -> {
+                        System.err.println("Could not resume operation " + entry.operation() + ": " 
+                                + error.getMessage());
+                        return recognize(upload, statusCallback);
+                    });
+        } else {
+            recognition = recognize(upload, statusCallback);
         }
-        
-        // Extract transcript text
-        StringBuilder transcript = new StringBuilder();
-        for (SpeechRecognitionResult result : response.getResultsList()) {
+        return recognition
+                .whenCompleteAsync((transcript, error) -> cleanUp(upload, patient), IO_EXECUTOR)
+                .thenApply(transcript -> {
+                    setStatus(statusCallback, "Completed");
+                    return transcript;
+                });
+    }
+    
+    /**
+     * Remove what an interrupted transcription left behind (blob and derived upload
+     * file) when its job cannot be finished.
+     */
+    public static void abandon(Path audioPath) {
+        JobJournal.Entry entry = JobJournal.lookup(audioPath);
+        if (entry != null && entry.isUploaded()) {
+            cleanUp(new Upload(audioPath, entry.uploadPath(), BlobId.of(entry.bucket(), entry.blob()), 
+                    entry.flac()), entry.patient());
+        }
+    }
+    
+    /**
+     * Join the top alternative of each result, one result per line.
+     */
+    static Transcript extractTranscript(List<SpeechRecognitionResult> results) {
+        List<Transcript> parts = new ArrayList<>(results.size());
+        for (SpeechRecognitionResult result : results) {
             if (result.getAlternativesCount() > 0) {
-                SpeechRecognitionAlternative alternative = result.getAlternatives(0);
-                String text = alternative.getTranscript().trim();
-                if (!text.isEmpty()) {
-                    if (transcript.length() > 0) {
-                        transcript.append("\n");
-                    }
-                    transcript.append(text);
-                }
+                parts.add(transcript(result.getAlternatives(0)));
             }
         }
-        
-        // Delete blob from GCS
-        blob.delete();
-        AuditLogger.log("gcs_delete", audioPath.getFileName().toString(), 
-                patient != null ? patient : "", "Deleted blob after transcription");
-        
-        setStatus(statusCallback, "Completed");
-        return transcript.toString();
+        return Transcript.join(parts);
+    }
+    
+    /**
+     * Get the text of a recognition alternative with its words located in it.
+     * Words that cannot be found in the text (e.g. differently punctuated) keep
+     * their timing at the position of the previous word.
+     */
+    static Transcript transcript(SpeechRecognitionAlternative alternative) {
+        String text = alternative.getTranscript().trim();
+        List<WordTimings.Word> words = new ArrayList<>(alternative.getWordsCount());
+        int position = 0;
+        for (WordInfo info : alternative.getWordsList()) {
+            int found = info.getWord().isEmpty() ? -1 : text.indexOf(info.getWord(), position);
+            int length = found >= 0 ? info.getWord().length() : 0;
+            if (found >= 0) {
+                position = found;
+            }
+            words.add(new WordTimings.Word(position, length, millis(info.getStartTime()), 
+                    millis(info.getEndTime()), info.getConfidence()));
+            position += length;
+        }
+        return new Transcript(text, words);
+    }
+    
+    private static int millis(com.google.protobuf.Duration duration) {
+        return (int) (duration.getSeconds() * 1000 + duration.getNanos() / 1_000_000);
+    }
+    
+    /**
+     * Delete the uploaded blob and any temporary audio file.
+     */
+    private static void cleanUp(Upload upload, String patient) {
+        try {
+            Clients.storageClient.delete(upload.blob());
+            AuditLogger.log("gcs_delete", upload.blob().getName(), 
+                    patient != null ? patient : "", "Deleted blob after transcription");
+        } catch (RuntimeException e) {
+            System.err.println("Failed to delete blob " + upload.blob().getName() + ": " + e.getMessage());
+            AuditLogger.log("gcs_delete_failed", upload.blob().getName(), 
+                    patient != null ? patient : "", "Error: " + e.getMessage());
+            // Not journaled as cleaned, so the blob is removed on the next start
+            return;
+        } finally {
+            if (!upload.uploadPath().equals(upload.audioPath())) {
+                FileManager.secureDelete(upload.uploadPath(), patient);
+            }
+        }
+        JobJournal.cleaned(upload.audioPath());
+    }
+    
+    /**
+     * Get the shared Speech client.
+     */
+    static SpeechClient speechClient() {
+        return Clients.speechClient;
+    }
+    
+    /**
+     * Build the recognition settings shared by all engines for the given audio encoding.
+     */
+    static RecognitionConfig recognitionConfig(RecognitionConfig.AudioEncoding encoding) {
+        return RecognitionConfig.newBuilder()
+                .setEncoding(encoding)
+                .setSampleRateHertz(Config.SAMPLE_RATE)
+                .setLanguageCode(Config.LANGUAGE_CODE)
+                .setModel(Config.GCS_MODEL)
+                .setEnableAutomaticPunctuation(true)
+                .setEnableWordTimeOffsets(true)
+                .setEnableWordConfidence(true)
+                .build();
     }
     
     /**
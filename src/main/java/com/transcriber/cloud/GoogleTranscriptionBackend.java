@@ -0,0 +1,32 @@
+package com.transcriber.cloud;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Google Cloud Speech-to-Text provider; see {@link GCloudTranscriber} for the
+ * inline, chunked and GCS recognition paths.
+ */
+public class GoogleTranscriptionBackend implements TranscriptionBackend {
+
+    @Override
+    public String getName() {
+        return "google";
+    }
+
+    @Override
+    public CompletableFuture<Transcript> transcribeAsync(Path audioPath, String patient, Consumer<String> statusCallback) {
+        return GCloudTranscriber.transcribeAsync(audioPath, patient, statusCallback);
+    }
+
+    @Override
+    public CompletableFuture<Transcript> resumeAsync(Path audioPath, String patient, Consumer<String> statusCallback) {
+        return GCloudTranscriber.resumeAsync(audioPath, patient, statusCallback);
+    }
+
+    @Override
+    public void abandon(Path audioPath) {
+        GCloudTranscriber.abandon(audioPath);
+    }
+}
@@ -0,0 +1,27 @@
+package com.transcriber.cloud;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A transcription that is produced while the recording is still in progress
+ * (segmented or live streaming), so its result is ready soon after recording stops.
+ */
+public interface InProgressTranscription extends AutoCloseable {
+
+    /**
+     * Wait for the recording to finish and return the complete transcript.
+     *
+     * @param statusCallback Optional callback for progress updates while waiting
+     * @return The transcript, with word timings relative to the whole recording
+     * @throws IOException If the transcription failed; the full recording should
+     *                     then be transcribed instead
+     */
+    Transcript awaitTranscript(Consumer<String> statusCallback) throws IOException;
+
+    /**
+     * Stop background work and release its resources.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,134 @@
+package com.transcriber.cloud;
+
+import com.transcriber.audio.AudioRecorder;
+import com.transcriber.audio.WavFile;
+import com.transcriber.config.Config;
+import com.transcriber.file.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Incremental transcription of a segmented recording.
+ * Each segment is transcribed in the background as soon as the recorder finalizes
+ * it, so most of the transcript is ready by the time dictation stops. Segment
+ * files are securely deleted once transcribed.
+ */
+public class SegmentedTranscription implements AudioRecorder.SegmentListener, InProgressTranscription {
+
+    private final String patient;
+    private final Consumer<String> statusCallback;
+    private final ExecutorService executor;
+    private final Map<Integer, CompletableFuture<Transcript>> segments = new ConcurrentHashMap<>();
+    private final Map<Integer, Path> segmentFiles = new ConcurrentHashMap<>();
+    // Segment durations, to place each segment's word timings in the whole recording
+    private final Map<Integer, Long> segmentMillis = new ConcurrentHashMap<>();
+    private final CompletableFuture<Integer> segmentCount = new CompletableFuture<>();
+    private final AtomicInteger transcribed = new AtomicInteger();
+
+    /**
+     * @param patient Patient identifier for audit logging
+     * @param statusCallback Optional callback for progress updates
+     */
+    public SegmentedTranscription(String patient, Consumer<String> statusCallback) {
+        this.patient = patient;
+        this.statusCallback = statusCallback;
+        this.executor = Executors.newFixedThreadPool(Config.SEGMENT_TRANSCRIPTION_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "SegmentTranscription");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void segmentCompleted(int index, Path segment) {
+        segmentFiles.put(index, segment);
+        segments.put(index, CompletableFuture.supplyAsync(() -> transcribeSegment(index, segment), executor));
+    }
+
+    @Override
+    public void recordingCompleted(int count) {
+        segmentCount.complete(count);
+    }
+
+    /**
+     * Wait for the recording to finish and every segment to be transcribed, then
+     * join the segment transcripts in order, one per line like
+     * {@link TranscriptionBackend#transcribe}, with word times shifted by the
+     * length of the segments before them.
+     *
+     * @param statusCallback Optional callback for progress updates while waiting
+     * @return The stitched transcript
+     * @throws IOException If segmenting or any segment transcription failed; the
+     *                     full recording should then be transcribed instead
+     */
+    @Override
+    public Transcript awaitTranscript(Consumer<String> statusCallback) throws IOException {
+        try {
+            int count = segmentCount.get();
+            if (count < 0) {
+                throw new IOException("Segmented recording failed");
+            }
+            List<Transcript> parts = new ArrayList<>(count);
+            long startMs = 0;
+            for (int i = 0; i < count; i++) {
+                CompletableFuture<Transcript> segment = segments.get(i);
+                if (segment == null) {
+                    throw new IOException("Missing recording segment " + i);
+                }
+                if (!segment.isDone() && statusCallback != null) {
+                    statusCallback.accept(String.format("Transcribing segment %d/%d…", i + 1, count));
+                }
+                parts.add(segment.get().delay((int) startMs));
+                startMs += segmentMillis.getOrDefault(i, 0L);
+            }
+            return Transcript.join(parts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transcription interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            throw new IOException("Segment transcription failed: " + cause.getMessage(), cause);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Stop background work and securely delete any segment files still on disk.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (Path segment : segmentFiles.values()) {
+            FileManager.secureDelete(segment, patient);
+        }
+    }
+
+    private Transcript transcribeSegment(int index, Path segment) {
+        try {
+            segmentMillis.put(index, Math.round(WavFile.open(segment).durationSeconds() * 1000));
+            Transcript transcript = TranscriptionBackends.get().transcribe(segment, patient, null);
+            if (statusCallback != null) {
+                statusCallback.accept(String.format("Transcribed %d segment(s)", transcribed.incrementAndGet()));
+            }
+            return transcript;
+        } catch (IOException e) {
+            throw new CompletionException("Segment " + index + ": " + e.getMessage(), e);
+        } finally {
+            FileManager.secureDelete(segment, patient);
+        }
+    }
+}
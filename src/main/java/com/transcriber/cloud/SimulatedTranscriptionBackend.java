@@ -0,0 +1,175 @@
+package com.transcriber.cloud;
+
+import com.transcriber.audio.SilenceSplitter;
+import com.transcriber.audio.WavFile;
+import com.transcriber.audit.AuditLogger;
+import com.transcriber.config.Config;
+import com.transcriber.file.WordTimings;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Offline provider for load testing the record → transcribe → template → save
+ * pipeline without network access.
+ * <p>
+ * Each pause-separated utterance of a WAV recording becomes one transcript line
+ * whose words are chosen from a fixed vocabulary by a checksum of its audio, so the
+ * same recording always yields the same transcript. Words are spread evenly over
+ * their utterance with pseudo-random confidences. Responses are delayed by a fixed
+ * latency plus the audio duration divided by the throughput, and a configurable
+ * fraction of requests fails.
+ */
+public class SimulatedTranscriptionBackend implements TranscriptionBackend {
+
+    private static final String[] VOCABULARY = {
+            "patient", "presents", "with", "mild", "chest", "pain", "since", "yesterday", "denies",
+            "fever", "or", "chills", "blood", "pressure", "is", "stable", "heart", "rate", "normal",
+            "lungs", "clear", "to", "auscultation", "bilaterally", "abdomen", "soft", "non-tender",
+            "continue", "current", "medication", "follow", "up", "in", "two", "weeks", "history",
+            "of", "hypertension", "and", "type", "diabetes", "um", "uh", "you", "know"
+    };
+    private static final double WORDS_PER_SECOND = 2.5;
+
+    /**
+     * A recording and the transcript the simulation will return for it.
+     */
+    private record Analysis(WavFile wav, Transcript transcript) {
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long latencyMs;
+    private final double throughput;
+    private final double failureRate;
+    private final Random failures;
+
+    /**
+     * Create a simulated backend using the settings from Config.
+     */
+    public SimulatedTranscriptionBackend() {
+        this(Config.SIMULATED_LATENCY_MS, Config.SIMULATED_THROUGHPUT, Config.SIMULATED_FAILURE_RATE,
+                Config.SIMULATED_SEED);
+    }
+
+    /**
+     * @param latencyMs Fixed delay added to every request
+     * @param throughput Seconds of audio processed per second of wall time
+     * @param failureRate Fraction of requests that fail, 0.0 to 1.0
+     * @param seed Seed for the failure sequence
+     */
+    public SimulatedTranscriptionBackend(long latencyMs, double throughput, double failureRate, long seed) {
+        this.latencyMs = latencyMs;
+        this.throughput = throughput;
+        this.failureRate = failureRate;
+        this.failures = new Random(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+
+    @Override
+    public CompletableFuture<Transcript> transcribeAsync(Path audioPath, String patient, Consumer<String> statusCallback) {
+        if (!Files.exists(audioPath)) {
+            return CompletableFuture.failedFuture(new FileNotFoundException("Audio file not found: " + audioPath));
+        }
+        boolean fail;
+        synchronized (failures) {
+            fail = failures.nextDouble() < failureRate;
+        }
+        setStatus(statusCallback, "Transcribing (simulated)…");
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                WavFile wav = WavFile.open(audioPath);
+                return new Analysis(wav, transcript(wav));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor).thenCompose(analysis -> {
+            WavFile wav = analysis.wav();
+            long delayMs = latencyMs + (long) (wav.durationSeconds() * 1000 / throughput);
+            return CompletableFuture.supplyAsync(() -> {
+                if (fail) {
+                    throw new CompletionException(new IOException("Simulated transcription failure"));
+                }
+                AuditLogger.log("simulated_recognize", audioPath, patient != null ? patient : "",
+                        String.format("Simulated recognition of %.1f s audio", wav.durationSeconds()));
+                setStatus(statusCallback, "Completed");
+                return analysis.transcript();
+            }, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, executor));
+        });
+    }
+
+    /**
+     * Build the deterministic transcript: one line per utterance, with a word count
+     * proportional to its duration.
+     */
+    private static Transcript transcript(WavFile wav) throws IOException {
+        List<SilenceSplitter.Chunk> utterances = SilenceSplitter.split(wav, 2, 15);
+        int bytesPerSecond = wav.sampleRate() * wav.frameSize();
+        List<Transcript> lines = new ArrayList<>(utterances.size());
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel in = FileChannel.open(wav.path(), StandardOpenOption.READ)) {
+            for (SilenceSplitter.Chunk utterance : utterances) {
+                CRC32 checksum = new CRC32();
+                long position = utterance.offset();
+                long end = utterance.offset() + utterance.length();
+                while (position < end) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                    int read = in.read(buffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    position += read;
+                    checksum.update(buffer.flip());
+                }
+                int words = (int) Math.round((double) utterance.length() / bytesPerSecond * WORDS_PER_SECOND);
+                if (words == 0) {
+                    continue;
+                }
+                Random random = new Random(checksum.getValue());
+                Random confidence = new Random(~checksum.getValue());
+                long startMs = (utterance.offset() - wav.dataOffset()) * 1000 / bytesPerSecond;
+                long durationMs = (long) utterance.length() * 1000 / bytesPerSecond;
+                StringBuilder line = new StringBuilder();
+                List<WordTimings.Word> timings = new ArrayList<>(words);
+                for (int i = 0; i < words; i++) {
+                    if (i > 0) {
+                        line.append(' ');
+                    }
+                    String word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+                    timings.add(new WordTimings.Word(line.length(), word.length(),
+                            (int) (startMs + durationMs * i / words), (int) (startMs + durationMs * (i + 1) / words),
+                            0.5f + confidence.nextFloat() / 2));
+                    line.append(word);
+                }
+                line.append('.');
+                lines.add(new Transcript(line.toString(), timings));
+            }
+        }
+        return Transcript.join(lines);
+    }
+
+    private static void setStatus(Consumer<String> callback, String message) {
+        if (callback != null) {
+            callback.accept(message);
+        }
+    }
+}
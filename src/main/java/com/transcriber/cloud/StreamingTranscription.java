@@ -0,0 +1,273 @@
+package com.transcriber.cloud;
+
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.cloud.speech.v1.RecognitionConfig;
+import com.google.cloud.speech.v1.SpeechClient;
+import com.google.cloud.speech.v1.StreamingRecognitionConfig;
+import com.google.cloud.speech.v1.StreamingRecognitionResult;
+import com.google.cloud.speech.v1.StreamingRecognizeRequest;
+import com.google.cloud.speech.v1.StreamingRecognizeResponse;
+import com.google.protobuf.ByteString;
+import com.transcriber.audio.AudioRecorder;
+import com.transcriber.audit.AuditLogger;
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Live transcription through the Speech v1 bidirectional StreamingRecognize API.
+ * <p>
+ * Audio is fed from the recorder as it is captured and interim/final results are
+ * pushed to a listener as they arrive, so no upload or polling is needed. Streams
+ * are rotated before the API's per-stream duration limit; results of each stream
+ * are kept in order.
+ */
+public class StreamingTranscription implements AudioRecorder.AudioListener, InProgressTranscription {
+
+    /**
+     * Receives transcript updates on a gRPC callback thread.
+     */
+    public interface Listener {
+        /**
+         * @param finalText All finalized text so far, one result per line
+         * @param interimText Not yet finalized text following it (may be empty)
+         */
+        void transcriptUpdated(String finalText, String interimText);
+    }
+
+    // Keep each request well under the API's per-message audio limit (0.5 s at 16kHz mono)
+    private static final int MAX_REQUEST_BYTES = 16_000;
+
+    private final SpeechClient client;
+    private final String patient;
+    private final Listener listener;
+    private final long maxStreamBytes;
+    private final List<RecognizeStream> streams = new ArrayList<>();
+    private final CompletableFuture<Void> captureDone = new CompletableFuture<>();
+    private RecognizeStream current;
+    private long streamedBytes;
+    private volatile boolean closed;
+
+    /**
+     * Create a live transcription using the shared Google Speech client.
+     *
+     * @param patient Patient identifier for audit logging
+     * @param listener Receiver of transcript updates
+     */
+    public StreamingTranscription(String patient, Listener listener) {
+        this(GCloudTranscriber.speechClient(), patient, listener);
+    }
+
+    /**
+     * Create a live transcription using the given Speech client, e.g. one connected
+     * to a local in-process stand-in for the Speech service.
+     */
+    public StreamingTranscription(SpeechClient client, String patient, Listener listener) {
+        this.client = client;
+        this.patient = patient;
+        this.listener = listener;
+        this.maxStreamBytes = (long) Config.STREAMING_MAX_SECONDS * Config.SAMPLE_RATE * Config.CHANNELS * 2;
+    }
+
+    @Override
+    public void audioCaptured(ByteBuffer pcm) {
+        if (closed) {
+            return;
+        }
+        try {
+            while (pcm.hasRemaining()) {
+                if (current == null || current.bytesSent >= maxStreamBytes) {
+                    if (current != null) {
+                        current.requests.closeSend();
+                    }
+                    current = openStream();
+                }
+                int length = (int) Math.min(pcm.remaining(), Math.min(MAX_REQUEST_BYTES,
+                        maxStreamBytes - current.bytesSent));
+                current.requests.send(StreamingRecognizeRequest.newBuilder()
+                        .setAudioContent(ByteString.copyFrom(pcm, length))
+                        .build());
+                current.bytesSent += length;
+                streamedBytes += length;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Live transcription failed: " + e.getMessage());
+            if (current != null) {
+                current.done.completeExceptionally(e);
+            }
+            closed = true;
+        }
+    }
+
+    @Override
+    public void captureStopped() {
+        if (current != null && !closed) {
+            current.requests.closeSend();
+        }
+        captureDone.complete(null);
+    }
+
+    /**
+     * Wait for recording to stop and the final results of every stream to arrive.
+     *
+     * @throws IOException If any stream failed or did not finish in time
+     */
+    @Override
+    public Transcript awaitTranscript(Consumer<String> statusCallback) throws IOException {
+        try {
+            captureDone.get();
+            if (statusCallback != null) {
+                statusCallback.accept("Finalizing live transcript…");
+            }
+            List<RecognizeStream> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(streams);
+            }
+            CompletableFuture.allOf(snapshot.stream().map(s -> s.done).toArray(CompletableFuture[]::new))
+                    .get(Config.STREAMING_FINAL_TIMEOUT_SEC, TimeUnit.SECONDS);
+            Transcript transcript = finalTranscript();
+            AuditLogger.log("streaming_recognize", "", patient != null ? patient : "",
+                    String.format("Live transcription completed (%d stream(s))", snapshot.size()));
+            return transcript;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transcription interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Live transcription failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Live transcription did not finish within "
+                    + Config.STREAMING_FINAL_TIMEOUT_SEC + " s", e);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Cancel any streams still open.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            for (RecognizeStream stream : streams) {
+                if (!stream.done.isDone() && stream.controller != null) {
+                    stream.controller.cancel();
+                }
+            }
+        }
+    }
+
+    private RecognizeStream openStream() {
+        // Result times are relative to the start of each stream
+        RecognizeStream stream = new RecognizeStream(
+                (int) (streamedBytes * 1000 / ((long) Config.SAMPLE_RATE * Config.CHANNELS * 2)));
+        synchronized (this) {
+            streams.add(stream);
+        }
+        stream.requests = client.streamingRecognizeCallable().splitCall(stream);
+        stream.requests.send(StreamingRecognizeRequest.newBuilder()
+                .setStreamingConfig(StreamingRecognitionConfig.newBuilder()
+                        .setConfig(GCloudTranscriber.recognitionConfig(RecognitionConfig.AudioEncoding.LINEAR16))
+                        .setInterimResults(true)
+                        .build())
+                .build());
+        return stream;
+    }
+
+    private synchronized Transcript finalTranscript() {
+        List<Transcript> results = new ArrayList<>();
+        for (RecognizeStream stream : streams) {
+            results.addAll(stream.finals);
+        }
+        return Transcript.join(results);
+    }
+
+    private void publish() {
+        String finals;
+        StringBuilder interim = new StringBuilder();
+        synchronized (this) {
+            finals = finalTranscript().text();
+            for (RecognizeStream stream : streams) {
+                if (!stream.interim.isEmpty()) {
+                    if (interim.length() > 0) {
+                        interim.append(' ');
+                    }
+                    interim.append(stream.interim);
+                }
+            }
+        }
+        listener.transcriptUpdated(finals, interim.toString());
+    }
+
+    /**
+     * One StreamingRecognize call and the results received on it.
+     */
+    private final class RecognizeStream implements ResponseObserver<StreamingRecognizeResponse> {
+        private final List<Transcript> finals = new ArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final int startMs;
+        private String interim = "";
+        private ClientStream<StreamingRecognizeRequest> requests;
+        private volatile StreamController controller;
+        private long bytesSent;
+
+        RecognizeStream(int startMs) {
+            this.startMs = startMs;
+        }
+
+        @Override
+        public void onStart(StreamController controller) {
+            this.controller = controller;
+        }
+
+        @Override
+        public void onResponse(StreamingRecognizeResponse response) {
+            synchronized (StreamingTranscription.this) {
+                StringBuilder pending = new StringBuilder();
+                for (StreamingRecognitionResult result : response.getResultsList()) {
+                    if (result.getAlternativesCount() == 0) {
+                        continue;
+                    }
+                    String text = result.getAlternatives(0).getTranscript().trim();
+                    if (text.isEmpty()) {
+                        continue;
+                    }
+                    if (result.getIsFinal()) {
+                        finals.add(GCloudTranscriber.transcript(result.getAlternatives(0)).delay(startMs));
+                    } else {
+                        if (pending.length() > 0) {
+                            pending.append(' ');
+                        }
+                        pending.append(text);
+                    }
+                }
+                interim = pending.toString();
+            }
+            publish();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done.completeExceptionally(t);
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (StreamingTranscription.this) {
+                interim = "";
+            }
+            done.complete(null);
+            publish();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.transcriber.cloud;
+
+import com.transcriber.file.WordTimings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A transcript and the timing and confidence of its words.
+ *
+ * @param text Transcript text, one recognition result per line
+ * @param words Recognized words ordered by position; offsets index into the text and
+ *              times count from the start of the recording (empty if not available)
+ */
+public record Transcript(String text, List<WordTimings.Word> words) {
+
+    /**
+     * Create a transcript without word timings.
+     */
+    public static Transcript of(String text) {
+        return new Transcript(text, List.of());
+    }
+
+    /**
+     * Join transcripts of consecutive parts of a recording, one per line, skipping
+     * empty ones. Word times must already be relative to the whole recording.
+     */
+    public static Transcript join(List<Transcript> parts) {
+        StringBuilder text = new StringBuilder();
+        List<WordTimings.Word> words = new ArrayList<>();
+        for (Transcript part : parts) {
+            if (part.text().isEmpty()) {
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append("\n");
+            }
+            int base = text.length();
+            for (WordTimings.Word word : part.words()) {
+                words.add(word.shift(base, 0));
+            }
+            text.append(part.text());
+        }
+        return new Transcript(text.toString(), List.copyOf(words));
+    }
+
+    /**
+     * Get this transcript with its word times moved later, e.g. for a chunk that
+     * starts part way into the recording.
+     */
+    public Transcript delay(int millis) {
+        if (millis == 0 || words.isEmpty()) {
+            return this;
+        }
+        return new Transcript(text, words.stream().map(word -> word.shift(0, millis)).toList());
+    }
+
+    /**
+     * Serialize text and word timings, e.g. for the transcript cache.
+     */
+    public byte[] toBytes() {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] wordBytes = WordTimings.encode(words);
+        return ByteBuffer.allocate(4 + textBytes.length + wordBytes.length)
+                .putInt(textBytes.length).put(textBytes).put(wordBytes)
+                .array();
+    }
+
+    /**
+     * Read a transcript written by {@link #toBytes()}.
+     *
+     * @throws IOException If the data is malformed
+     */
+    public static Transcript fromBytes(byte[] data) throws IOException {
+        if (data.length < 4) {
+            throw new IOException("Truncated transcript data");
+        }
+        int textLength = ByteBuffer.wrap(data).getInt();
+        if (textLength < 0 || textLength > data.length - 4) {
+            throw new IOException("Corrupt transcript data");
+        }
+        String text = new String(data, 4, textLength, StandardCharsets.UTF_8);
+        return new Transcript(text, WordTimings.decode(Arrays.copyOfRange(data, 4 + textLength, data.length)));
+    }
+}
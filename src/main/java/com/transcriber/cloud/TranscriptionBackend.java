@@ -0,0 +1,88 @@
+package com.transcriber.cloud;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * A speech-to-text service that turns a recording into a transcript with word timings.
+ * <p>
+ * Providers are discovered with {@link java.util.ServiceLoader} and selected by
+ * {@link #getName()} through {@link TranscriptionBackends}.
+ */
+public interface TranscriptionBackend {
+
+    /**
+     * Get the name this provider is selected by in Config.
+     */
+    String getName();
+
+    /**
+     * Transcribe an audio file without blocking the caller.
+     *
+     * @param audioPath Path to the audio file
+     * @param patient Patient identifier for audit logging
+     * @param statusCallback Optional callback for status updates
+     * @return Future completed with the transcript, one result per line, and its word
+     *         timings where the provider reports them, or exceptionally with the IOException/RuntimeException that caused the failure
+     */
+    CompletableFuture<Transcript> transcribeAsync(Path audioPath, String patient, Consumer<String> statusCallback);
+
+    /**
+     * Transcribe an audio file, blocking until the transcript is ready.
+     *
+     * @param audioPath Path to the audio file
+     * @param patient Patient identifier for audit logging
+     * @param statusCallback Optional callback for status updates
+     * @return The transcript
+     * @throws IOException If file operations fail
+     * @throws RuntimeException If transcription fails
+     */
+    default Transcript transcribe(Path audioPath, String patient, Consumer<String> statusCallback) throws IOException {
+        return await(transcribeAsync(audioPath, patient, statusCallback));
+    }
+
+    /**
+     * Finish transcribing a recording whose job was interrupted by an app exit.
+     * Providers that keep remote state (uploads, operations) re-attach to it instead
+     * of sending the audio again; the default transcribes the recording from scratch.
+     *
+     * @param audioPath Path to the recording
+     * @param patient Patient identifier for audit logging
+     * @param statusCallback Optional callback for status updates
+     * @return Future completed with the transcript
+     */
+    default CompletableFuture<Transcript> resumeAsync(Path audioPath, String patient, Consumer<String> statusCallback) {
+        return transcribeAsync(audioPath, patient, statusCallback);
+    }
+
+    /**
+     * Release remote state left by an interrupted transcription that will not be
+     * finished, e.g. of a recording segment whose session is gone.
+     */
+    default void abandon(Path audioPath) {
+    }
+
+    /**
+     * Wait for a transcription, unwrapping its failure.
+     *
+     * @throws IOException If file operations failed
+     * @throws RuntimeException If transcription failed
+     */
+    static Transcript await(CompletableFuture<Transcript> transcription) throws IOException {
+        try {
+            return transcription.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+}
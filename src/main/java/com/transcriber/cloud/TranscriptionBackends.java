@@ -0,0 +1,82 @@
+package com.transcriber.cloud;
+
+import com.transcriber.config.Config;
+import com.transcriber.file.TranscriptCache;
+
+import java.io.IOException;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the active {@link TranscriptionBackend}.
+ * The provider named by {@link Config#TRANSCRIPTION_BACKEND} is loaded on first use,
+ * behind the transcript cache; benchmarks and tests can install their own with {@link #set}.
+ */
+public class TranscriptionBackends {
+
+    private static volatile TranscriptionBackend current;
+
+    private TranscriptionBackends() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Get the active backend, loading the configured provider on first use.
+     *
+     * @throws IllegalStateException If no provider has the configured name
+     */
+    public static TranscriptionBackend get() {
+        TranscriptionBackend backend = current;
+        if (backend == null) {
+            synchronized (TranscriptionBackends.class) {
+                if (current == null) {
+                    current = withCache(load(Config.TRANSCRIPTION_BACKEND));
+                }
+                backend = current;
+            }
+        }
+        return backend;
+    }
+
+    /**
+     * Replace the active backend.
+     *
+     * @param backend The backend to use from now on, or null to reload the configured one
+     */
+    public static void set(TranscriptionBackend backend) {
+        current = backend;
+    }
+
+    /**
+     * Put the transcript cache in front of a provider, unless it is disabled or
+     * cannot be opened.
+     */
+    private static TranscriptionBackend withCache(TranscriptionBackend backend) {
+        if (Config.TRANSCRIPT_CACHE_MAX_BYTES <= 0) {
+            return backend;
+        }
+        try {
+            return new CachingTranscriptionBackend(backend,
+                    new TranscriptCache(Config.TRANSCRIPT_CACHE_DIR, Config.TRANSCRIPT_CACHE_KEY_FILE,
+                            Config.TRANSCRIPT_CACHE_MAX_BYTES));
+        } catch (IOException e) {
+            System.err.println("Transcript cache disabled: " + e.getMessage());
+            return backend;
+        }
+    }
+
+    /**
+     * Find a provider by name.
+     *
+     * @param name Provider name, e.g. "google" or "simulated"
+     * @return A new instance of the provider
+     * @throws IllegalStateException If no provider has that name
+     */
+    public static TranscriptionBackend load(String name) {
+        for (TranscriptionBackend backend : ServiceLoader.load(TranscriptionBackend.class)) {
+            if (backend.getName().equalsIgnoreCase(name)) {
+                return backend;
+            }
+        }
+        throw new IllegalStateException("No transcription backend named '" + name + "'");
+    }
+}
@@ -16,17 +16,99 @@ public class Config {
     public static final Path RECORDINGS_DIR = BASE_DIR.resolve("recordings");
     public static final Path AUDIT_LOG_DIR = BASE_DIR.resolve("audit_logs");
     public static final Path TEMPLATES_DIR = BASE_DIR.resolve("templates");
+    public static final Path TRANSCRIPT_CACHE_DIR = BASE_DIR.resolve("cache");
+    public static final Path JOB_JOURNAL_FILE = BASE_DIR.resolve("jobs").resolve("jobs.journal");
+    // Keep transcriptions in yyyy/MM subdirectories of TRANSCRIPTIONS_DIR by creation date;
+    // files still at the top level are moved in the background, a batch at a time
+    public static final boolean SHARDED_TRANSCRIPTIONS = false;
+    public static final int MIGRATION_BATCH_SIZE = 50;
+    public static final long MIGRATION_BATCH_PAUSE_MS = 500;
+    // Transcription file list saved between runs, so it shows at once on start
+    public static final Path TRANSCRIPTION_INDEX_FILE = TRANSCRIPT_CACHE_DIR.resolve("transcriptions.index");
+    // Full-text search index of the transcriptions
+    public static final Path SEARCH_INDEX_FILE = TRANSCRIPT_CACHE_DIR.resolve("search.index");
+    // Rows of the transcription list shown at a time ("Show More" adds another page)
+    public static final int FILE_LIST_PAGE_SIZE = 200;
+    // User normalization dictionaries (*.txt, "phrase => replacement" per line) applied by
+    // "Clean Transcription" after the bundled medical one, and their compiled form
+    public static final Path NORMALIZATION_DIR = BASE_DIR.resolve("normalization");
+    public static final Path NORMALIZATION_CACHE_FILE = TRANSCRIPT_CACHE_DIR.resolve("normalization.dict");
+    // Template edits are picked up once the templates directory has been quiet this long
+    public static final long TEMPLATE_RELOAD_DEBOUNCE_MS = 250;
+    
+    // Transcription provider: "google", or "simulated" for offline load testing
+    public static final String TRANSCRIPTION_BACKEND = "google";
+    // Encrypted transcript cache keyed by audio content and recognition settings; least
+    // recently used entries are securely deleted beyond this size (0 disables the cache)
+    public static final long TRANSCRIPT_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+    // Key of the transcript cache, kept out of the cache directory in a user-only directory
+    public static final Path TRANSCRIPT_CACHE_KEY_FILE = Paths.get(System.getProperty("user.home"))
+            .resolve(".transcriber").resolve("cache.key");
+    // Simulated provider: fixed latency, seconds of audio processed per second, failure fraction
+    public static final long SIMULATED_LATENCY_MS = 300;
+    public static final double SIMULATED_THROUGHPUT = 20.0;
+    public static final double SIMULATED_FAILURE_RATE = 0.0;
+    public static final long SIMULATED_SEED = 42;
     
     // Google Cloud
     public static final String GCS_BUCKET = "transcribe_bucket9788";
     public static final String LANGUAGE_CODE = "en-US";
     public static final String GCS_MODEL = "medical_conversation";
-    public static final int POLL_INTERVAL_SEC = 5;
+    // Long-running operation polling, done by the client library in the background
+    public static final int OPERATION_POLL_INITIAL_MS = 500;
+    public static final int OPERATION_POLL_MAX_MS = 2000;
+    // Transcription job queue: jobs running at once, and queued + running jobs accepted
+    public static final int TRANSCRIPTION_CONCURRENCY = 2;
+    public static final int TRANSCRIPTION_QUEUE_CAPACITY = 10;
+    // Inline fast path: WAV clips up to INLINE_MAX_SECONDS (synchronous recognize accepts
+    // 60 s) and INLINE_MAX_BYTES (10 MB request limit) skip GCS and the long-running operation
+    public static final boolean INLINE_RECOGNITION = true;
+    public static final int INLINE_MAX_SECONDS = 55;
+    public static final int INLINE_MAX_BYTES = 9 * 1024 * 1024;
+    // Parallel chunked recognition: recordings longer than CHUNKED_MIN_SECONDS are split at
+    // pauses into CHUNK_MIN_SECONDS..CHUNK_MAX_SECONDS chunks (synchronous recognize accepts
+    // at most 60 s) and recognized with up to CHUNKED_FAN_OUT requests in flight
+    public static final boolean CHUNKED_RECOGNITION = false;
+    public static final int CHUNKED_MIN_SECONDS = 120;
+    public static final int CHUNK_MIN_SECONDS = 30;
+    public static final int CHUNK_MAX_SECONDS = 55;
+    public static final int CHUNKED_FAN_OUT = 8;
+    // Resumable GCS upload: bytes per upload request (multiple of 256 KiB) and
+    // how many transient failures to resume from before giving up
+    public static final int UPLOAD_CHUNK_SIZE_KB = 4096;
+    public static final int UPLOAD_MAX_RETRIES = 5;
+    
+    // Live StreamingRecognize engine
+    public static final boolean LIVE_TRANSCRIPTION = false;  // initial state of the "Live" checkbox
+    public static final int STREAMING_MAX_SECONDS = 290;     // rotate streams before the API's ~5 min limit
+    public static final int STREAMING_FINAL_TIMEOUT_SEC = 30;
     
     // Audio recording defaults
     public static final int SAMPLE_RATE = 16_000;
     public static final int CHANNELS = 1;
     public static final String AUDIO_SUBTYPE = "PCM_SIGNED";
+    // Seconds of audio the capture ring buffer can hold while the disk writer is stalled
+    public static final int CAPTURE_BUFFER_SECONDS = 10;
+    
+    // Segmented recording with incremental transcription (0 disables segmenting). Segments
+    // are sent to Google while dictating, before "Send to Google" is pressed (e.g. 50)
+    public static final int SEGMENT_SECONDS = 0;         // hard segment length limit
+    public static final int SEGMENT_MIN_SECONDS = 15;    // rotate at the first pause after this
+    public static final int SEGMENT_PAUSE_MS = 600;
+    public static final int SEGMENT_TRANSCRIPTION_THREADS = 2;
+    
+    // Silence trimming before upload (voice activity detection)
+    public static final boolean TRIM_SILENCE = false;
+    public static final double VAD_ENERGY_THRESHOLD_DBFS = -45.0;
+    public static final int SILENCE_MAX_GAP_MS = 1000;   // silences longer than this are collapsed
+    public static final int SILENCE_KEEP_GAP_MS = 300;   // length a collapsed silence is reduced to
+    
+    // Lossless FLAC encoding before upload (recognition switches to AudioEncoding.FLAC)
+    public static final boolean ENCODE_FLAC = true;
+    
+    // Word review: words recognized with less confidence than this are offered by
+    // "Next Uncertain Word" (timings and confidences are kept in a .words sidecar)
+    public static final float LOW_CONFIDENCE_THRESHOLD = 0.8f;
     
     // Security / deletion
     public static final int SECURE_OVERWRITE_PASSES = 3;
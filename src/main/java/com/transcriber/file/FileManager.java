@@ -2,18 +2,24 @@ package com.transcriber.file;
 
 import com.transcriber.audit.AuditLogger;
 import com.transcriber.config.Config;
+import com.transcriber.text.TextSource;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -25,6 +31,19 @@ public class FileManager {
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
             .withZone(ZoneId.systemDefault());
     private static final SecureRandom secureRandom = new SecureRandom();
+    private static volatile ChangeListener changeListener;
+    
+    /**
+     * Receives the files saved, moved and deleted through this class, e.g. to keep an
+     * index of them. Called on the thread that changed the file.
+     */
+    public interface ChangeListener {
+        void transcriptionSaved(Path path);
+        
+        void transcriptionMoved(Path from, Path to);
+        
+        void fileDeleted(Path path);
+    }
     
     static {
         // Ensure directories exist
@@ -36,6 +55,13 @@ public class FileManager {
         }
     }
     
+    /**
+     * Set the listener notified of saved and deleted files, or null for none.
+     */
+    public static void setChangeListener(ChangeListener listener) {
+        changeListener = listener;
+    }
+    
     /**
      * Sanitize a component (patient name or DOB) for use in filenames.
      */
@@ -48,48 +74,161 @@ public class FileManager {
     }
     
     /**
-     * Generate a filename for a transcription based on patient name and DOB.
+     * Generate a filename for a transcription based on patient name and DOB. With
+     * {@link Config#SHARDED_TRANSCRIPTIONS} it is in the directory for today's month.
      */
     public static Path generateFilename(String patient, String dob) {
-        String timestamp = TIMESTAMP_FORMATTER.format(Instant.now());
+        Instant now = Instant.now();
+        String timestamp = TIMESTAMP_FORMATTER.format(now);
         String safePatient = sanitizeComponent(patient);
         String safeDob = sanitizeComponent(dob);
-        return Config.TRANSCRIPTIONS_DIR.resolve(String.format("%s_%s_%s.txt", safePatient, safeDob, timestamp));
+        Path directory = Config.SHARDED_TRANSCRIPTIONS
+                ? shardDirectory(Config.TRANSCRIPTIONS_DIR, LocalDate.ofInstant(now, ZoneId.systemDefault()))
+                : Config.TRANSCRIPTIONS_DIR;
+        return directory.resolve(String.format("%s_%s_%s.txt", safePatient, safeDob, timestamp));
     }
     
     /**
-     * List all transcription files, sorted by modification time (newest first).
+     * The {@code yyyy/MM} directory under a transcriptions directory for transcriptions
+     * created on a date.
      */
-    public static List<Path> listTranscriptions() {
-        try {
-            List<Path> files = new ArrayList<>();
-            if (Files.exists(Config.TRANSCRIPTIONS_DIR)) {
-                try (var stream = Files.list(Config.TRANSCRIPTIONS_DIR)) {
-                    stream.filter(Files::isRegularFile)
-                          .filter(p -> p.toString().endsWith(".txt"))
-                          .forEach(files::add);
-                }
+    public static Path shardDirectory(Path root, LocalDate created) {
+        return root.resolve(String.format("%04d", created.getYear()))
+                   .resolve(String.format("%02d", created.getMonthValue()));
+    }
+    
+    /**
+     * Whether a directory is a {@code yyyy} directory under a transcriptions directory,
+     * or a {@code MM} directory in one.
+     */
+    public static boolean isShardDirectory(Path root, Path directory) {
+        Path parent = directory.getParent();
+        if (root.equals(parent)) {
+            return isNumber(directory.getFileName(), 4);
+        }
+        return parent != null && root.equals(parent.getParent())
+                && isNumber(parent.getFileName(), 4) && isNumber(directory.getFileName(), 2);
+    }
+    
+    /**
+     * Whether a file is where transcriptions are kept under a transcriptions directory:
+     * directly in it (the flat layout), or in a {@code yyyy/MM} directory. Both layouts
+     * are read, so files can be moved while the app runs.
+     */
+    public static boolean isTranscriptionLocation(Path root, Path file) {
+        Path parent = file.getParent();
+        return root.equals(parent)
+                || parent != null && !root.equals(parent.getParent()) && isShardDirectory(root, parent);
+    }
+    
+    private static boolean isNumber(Path name, int digits) {
+        String text = name.toString();
+        return text.length() == digits && text.chars().allMatch(c -> c >= '0' && c <= '9');
+    }
+    
+    /**
+     * Find a transcription that may have been moved between the flat and sharded
+     * layouts since it was listed.
+     *
+     * @return Where the file is now, or {@code file} if it is not found elsewhere
+     */
+    public static Path locateTranscription(Path file) {
+        if (Files.exists(file)) {
+            return file;
+        }
+        String name = file.getFileName().toString();
+        Path flat = Config.TRANSCRIPTIONS_DIR.resolve(name);
+        if (Files.exists(flat)) {
+            return flat;
+        }
+        TranscriptionIndex.Entry entry = TranscriptionIndex.Entry.of(file, 0, 0);
+        if (entry.timestamp() != null) {
+            Path sharded = shardDirectory(Config.TRANSCRIPTIONS_DIR, entry.createdDate()).resolve(name);
+            if (Files.exists(sharded)) {
+                return sharded;
             }
-            files.sort(Comparator.comparing((Path p) -> {
-                try {
-                    return Files.getLastModifiedTime(p).toInstant();
-                } catch (IOException e) {
-                    return Instant.EPOCH;
-                }
-            }).reversed());
-            return files;
-        } catch (IOException e) {
-            System.err.println("Failed to list transcriptions: " + e.getMessage());
+        }
+        return file;
+    }
+    
+    /**
+     * List all transcription files, in either layout, sorted by modification time
+     * (newest first). This scans the directories; the app keeps a
+     * {@link TranscriptionIndex} instead.
+     */
+    public static List<Path> listTranscriptions() {
+        if (!Files.exists(Config.TRANSCRIPTIONS_DIR)) {
             return new ArrayList<>();
         }
+        Map<String, TranscriptionIndex.Entry> entries = TranscriptionIndex.scan(Config.TRANSCRIPTIONS_DIR);
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+        List<TranscriptionIndex.Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(TranscriptionIndex.Entry::modified).reversed());
+        List<Path> files = new ArrayList<>(sorted.size());
+        for (TranscriptionIndex.Entry entry : sorted) {
+            files.add(entry.path());
+        }
+        return files;
     }
     
     /**
      * Save transcription content to a file.
      */
     public static void saveTranscription(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
         Files.writeString(path, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
         AuditLogger.log("save_transcription", path, "", "Saved transcription");
+        saved(path);
+    }
+    
+    /**
+     * Save transcription content streamed from a source, e.g. a template applied to
+     * a cleaned transcript, through a bounded write buffer.
+     */
+    public static void saveTranscription(Path path, TextSource content) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (Writer out = Files.newBufferedWriter(path)) {
+            content.writeTo(out);
+        }
+        AuditLogger.log("save_transcription", path, "", "Saved transcription");
+        saved(path);
+    }
+    
+    private static void saved(Path path) {
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.transcriptionSaved(path);
+        }
+    }
+    
+    /**
+     * Move a transcription and its word timings, e.g. into its {@code yyyy/MM}
+     * directory. The move is a rename, so readers see the file at one place or the
+     * other, never half-written.
+     *
+     * @throws FileAlreadyExistsException If there already is a file at {@code to}
+     */
+    public static void moveTranscription(Path from, Path to) throws IOException {
+        if (Files.exists(to)) {
+            throw new FileAlreadyExistsException(to.toString());
+        }
+        Files.createDirectories(to.getParent());
+        Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        Path timings = WordTimings.sidecarPath(from);
+        if (Files.exists(timings)) {
+            try {
+                Files.move(timings, WordTimings.sidecarPath(to), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("Failed to move word timings of " + from.getFileName() + ": " + e.getMessage());
+            }
+        }
+        AuditLogger.log("move_transcription", to, "", "Moved from " + from);
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.transcriptionMoved(from, to);
+        }
     }
     
     /**
@@ -112,26 +251,11 @@ public class FileManager {
         }
         
         try {
-            long size = Files.size(filePath);
-            if (size > 0) {
-                byte[] randomData = new byte[(int) Math.min(size, 8192)]; // 8KB buffer
-                
-                for (int pass = 0; pass < Config.SECURE_OVERWRITE_PASSES; pass++) {
-                    try (java.nio.channels.FileChannel channel = 
-                            java.nio.channels.FileChannel.open(filePath, StandardOpenOption.WRITE)) {
-                        long written = 0;
-                        while (written < size) {
-                            secureRandom.nextBytes(randomData);
-                            int toWrite = (int) Math.min(randomData.length, size - written);
-                            channel.write(java.nio.ByteBuffer.wrap(randomData, 0, toWrite));
-                            written += toWrite;
-                        }
-                        channel.force(true); // Force write to disk
-                    }
-                }
+            overwriteAndDelete(filePath);
+            ChangeListener listener = changeListener;
+            if (listener != null) {
+                listener.fileDeleted(filePath);
             }
-            
-            Files.delete(filePath);
             AuditLogger.log("secure_delete", filePath, patient != null ? patient : "",
                     String.format("Overwritten %d passes and deleted", Config.SECURE_OVERWRITE_PASSES));
         } catch (IOException e) {
@@ -140,6 +264,49 @@ public class FileManager {
                     "Error: " + e.getMessage());
         }
     }
+    
+    /**
+     * Securely delete a file the app keeps for itself, e.g. an index being replaced,
+     * overwriting it as {@link #secureDelete} does. This is cache maintenance rather
+     * than the disposal of a record, so it is not audit logged or reported to the
+     * change listener.
+     * 
+     * @param filePath The file to securely delete
+     */
+    public static void secureDeleteCacheFile(Path filePath) {
+        if (filePath == null || !Files.exists(filePath)) {
+            return;
+        }
+        
+        try {
+            overwriteAndDelete(filePath);
+        } catch (IOException e) {
+            System.err.println("Failed to securely delete " + filePath.getFileName() + ": " + e.getMessage());
+        }
+    }
+    
+    private static void overwriteAndDelete(Path filePath) throws IOException {
+        long size = Files.size(filePath);
+        if (size > 0) {
+            byte[] randomData = new byte[(int) Math.min(size, 8192)]; // 8KB buffer
+            
+            for (int pass = 0; pass < Config.SECURE_OVERWRITE_PASSES; pass++) {
+                try (java.nio.channels.FileChannel channel = 
+                        java.nio.channels.FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+                    long written = 0;
+                    while (written < size) {
+                        secureRandom.nextBytes(randomData);
+                        int toWrite = (int) Math.min(randomData.length, size - written);
+                        channel.write(java.nio.ByteBuffer.wrap(randomData, 0, toWrite));
+                        written += toWrite;
+                    }
+                    channel.force(true); // Force write to disk
+                }
+            }
+        }
+        
+        Files.delete(filePath);
+    }
 }
 
 
@@ -0,0 +1,311 @@
+package com.transcriber.file;
+
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of transcription job state, so that jobs interrupted by an
+ * app exit can be finished on the next start without sending their audio again.
+ * <p>
+ * Each line records one step of a job, keyed by its recording path: submitted (with
+ * the patient context), uploaded (blob and derived upload file), operation started,
+ * blob cleaned up, and finished. Lines are written with DSYNC so a step is on disk
+ * before the next one starts. The journal is replayed once and then kept up to date
+ * in memory. {@link #compact()} rewrites it with only the jobs still pending, and
+ * securely deletes the previous file, which names the patients of finished jobs.
+ */
+public class JobJournal {
+    
+    private static final Path JOURNAL_FILE = Config.JOB_JOURNAL_FILE;
+    
+    private static final String SUBMITTED = "SUBMITTED";
+    private static final String UPLOADED = "UPLOADED";
+    private static final String OPERATION = "OPERATION";
+    private static final String CLEANED = "CLEANED";
+    private static final String FINISHED = "FINISHED";
+    
+    // Replayed journal, guarded by the class; null until first read
+    private static Map<Path, Entry> state;
+    
+    /**
+     * Replayed state of one unfinished job.
+     *
+     * @param recording The recording being transcribed
+     * @param patient Patient name, or null if the job was not submitted through the
+     *                queue (e.g. a recording segment) or has finished
+     * @param dob Patient date of birth
+     * @param template Template to apply, or null
+     * @param bucket Bucket of the uploaded blob, or null if nothing is uploaded
+     * @param blob Name of the uploaded blob
+     * @param uploadPath Derived file that was uploaded (e.g. the FLAC encoding)
+     * @param flac Whether the uploaded audio is FLAC
+     * @param operation Name of the long-running recognize operation, or null
+     */
+    public record Entry(Path recording, String patient, String dob, Path template, String bucket, String blob,
+                        Path uploadPath, boolean flac, String operation) {
+        
+        /**
+         * Whether the job came from the transcription queue and can be finished.
+         */
+        public boolean isSubmitted() {
+            return patient != null;
+        }
+        
+        /**
+         * Whether a blob is still in the bucket for this job.
+         */
+        public boolean isUploaded() {
+            return blob != null;
+        }
+        
+        private Entry withSubmission(String patient, String dob, Path template) {
+            return new Entry(recording, patient, dob, template, bucket, blob, uploadPath, flac, operation);
+        }
+        
+        private Entry withUpload(String bucket, String blob, Path uploadPath, boolean flac) {
+            return new Entry(recording, patient, dob, template, bucket, blob, uploadPath, flac, null);
+        }
+        
+        private Entry withOperation(String operation) {
+            return new Entry(recording, patient, dob, template, bucket, blob, uploadPath, flac, operation);
+        }
+        
+        private Entry finished() {
+            return new Entry(recording, null, null, null, bucket, blob, uploadPath, flac, null);
+        }
+        
+        private Entry cleaned() {
+            return new Entry(recording, patient, dob, template, null, null, null, false, null);
+        }
+    }
+    
+    private JobJournal() {
+        // Utility class - prevent instantiation
+    }
+    
+    /**
+     * Record that a recording was queued for transcription.
+     */
+    public static void submitted(Path recording, String patient, String dob, Path template) {
+        append(SUBMITTED, recording, patient, dob, template != null ? template.toString() : "");
+    }
+    
+    /**
+     * Record that a recording's audio is in the bucket.
+     */
+    public static void uploaded(Path recording, String bucket, String blob, Path uploadPath, boolean flac) {
+        append(UPLOADED, recording, bucket, blob, uploadPath.toString(), Boolean.toString(flac));
+    }
+    
+    /**
+     * Record the name of the recognize operation running on a recording's blob.
+     */
+    public static void operationStarted(Path recording, String operation) {
+        append(OPERATION, recording, operation);
+    }
+    
+    /**
+     * Record that a recording's blob and derived upload file were removed.
+     */
+    public static void cleaned(Path recording) {
+        append(CLEANED, recording);
+    }
+    
+    /**
+     * Record that a job completed or failed; it will not be resumed.
+     */
+    public static void finished(Path recording) {
+        append(FINISHED, recording);
+    }
+    
+    /**
+     * Replay the journal.
+     *
+     * @return Unfinished jobs by recording, in submission order; jobs that were never
+     *         submitted, or finished without their blob being cleaned up, are only
+     *         included while their blob is still uploaded, so it is removed on start
+     */
+    public static synchronized Map<Path, Entry> pending() {
+        return new LinkedHashMap<>(state());
+    }
+    
+    /**
+     * Look up the unfinished state of one recording.
+     *
+     * @return The entry, or null if the recording has no unfinished job
+     */
+    public static synchronized Entry lookup(Path recording) {
+        return state().get(recording);
+    }
+    
+    private static Map<Path, Entry> state() {
+        if (state != null) {
+            return state;
+        }
+        state = new LinkedHashMap<>();
+        Path previous = sibling(".old");
+        try {
+            // A compaction was interrupted: use the last complete journal
+            if (Files.exists(previous)) {
+                if (Files.exists(JOURNAL_FILE)) {
+                    FileManager.secureDelete(previous, "");
+                } else {
+                    Files.move(previous, JOURNAL_FILE);
+                }
+            }
+            FileManager.secureDelete(sibling(".tmp"), "");
+            if (Files.exists(JOURNAL_FILE)) {
+                for (String line : Files.readAllLines(JOURNAL_FILE)) {
+                    apply(line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read job journal: " + e.getMessage());
+        }
+        return state;
+    }
+    
+    /**
+     * Replay one journal line onto the state.
+     */
+    private static void apply(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length < 2) {
+            return; // torn write at the end of the journal
+        }
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = unescape(fields[i]);
+        }
+        Path recording = Path.of(fields[1]);
+        Entry entry = state.getOrDefault(recording,
+                new Entry(recording, null, null, null, null, null, null, false, null));
+        switch (fields[0]) {
+            case SUBMITTED -> {
+                if (fields.length >= 5) {
+                    entry = entry.withSubmission(fields[2], fields[3],
+                            fields[4].isEmpty() ? null : Path.of(fields[4]));
+                }
+            }
+            case UPLOADED -> {
+                if (fields.length >= 6) {
+                    entry = entry.withUpload(fields[2], fields[3], Path.of(fields[4]),
+                            Boolean.parseBoolean(fields[5]));
+                }
+            }
+            case OPERATION -> {
+                if (fields.length >= 3) {
+                    entry = entry.withOperation(fields[2]);
+                }
+            }
+            case CLEANED -> entry = entry.cleaned();
+            // Not resumed, but kept while the blob is left in the bucket
+            case FINISHED -> entry = entry.finished();
+            default -> {
+                // unknown step from a newer version; ignore
+            }
+        }
+        if (entry.isSubmitted() || entry.isUploaded()) {
+            state.put(recording, entry);
+        } else {
+            state.remove(recording);
+        }
+    }
+    
+    /**
+     * Rewrite the journal so it holds only the pending jobs.
+     */
+    public static synchronized void compact() {
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : state().values()) {
+            if (entry.isSubmitted()) {
+                lines.add(line(SUBMITTED, entry.recording(), entry.patient(), entry.dob(),
+                        entry.template() != null ? entry.template().toString() : ""));
+            }
+            if (entry.isUploaded()) {
+                lines.add(line(UPLOADED, entry.recording(), entry.bucket(), entry.blob(),
+                        entry.uploadPath().toString(), Boolean.toString(entry.flac())));
+                if (entry.operation() != null) {
+                    lines.add(line(OPERATION, entry.recording(), entry.operation()));
+                }
+            }
+        }
+        try {
+            Files.createDirectories(JOURNAL_FILE.getParent());
+            Path temp = sibling(".tmp");
+            Path previous = sibling(".old");
+            Files.write(temp, lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+            // Moving over the old journal would leave finished jobs' patients on disk
+            boolean replacing = Files.exists(JOURNAL_FILE);
+            if (replacing) {
+                Files.move(JOURNAL_FILE, previous, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, JOURNAL_FILE);
+            if (replacing) {
+                FileManager.secureDelete(previous, "");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to compact job journal: " + e.getMessage());
+        }
+    }
+    
+    private static synchronized void append(String step, Path recording, String... values) {
+        String line = line(step, recording, values);
+        state();
+        try {
+            Files.createDirectories(JOURNAL_FILE.getParent());
+            Files.writeString(JOURNAL_FILE, line + System.lineSeparator(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            System.err.println("Failed to write job journal: " + e.getMessage());
+        }
+        apply(line);
+    }
+    
+    private static Path sibling(String suffix) {
+        return JOURNAL_FILE.resolveSibling(JOURNAL_FILE.getFileName() + suffix);
+    }
+    
+    private static String line(String step, Path recording, String... values) {
+        StringBuilder line = new StringBuilder(step).append('\t').append(escape(recording.toString()));
+        for (String value : values) {
+            line.append('\t').append(escape(value != null ? value : ""));
+        }
+        return line.toString();
+    }
+    
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+    
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,313 @@
+package com.transcriber.file;
+
+import com.transcriber.audio.WavFile;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of transcripts, keyed by a hash of a recording's PCM
+ * data and the recognition settings it was transcribed with.
+ * <p>
+ * Entries are AES-GCM encrypted with a key kept outside the cache directory, in a
+ * file and directory only the user can access (POSIX permissions, or an owner-only
+ * ACL on Windows), so a copy of the cache directory alone cannot be decrypted. The
+ * key file is only as safe as the user's account. The cache is bounded in bytes; the least
+ * recently used entries are evicted with {@link FileManager#secureDelete}. Recency
+ * survives restarts through the entries' modification times.
+ */
+public class TranscriptCache {
+
+    private static final String ENTRY_SUFFIX = ".bin";
+    // Where the key was kept before it moved out of the cache directory
+    private static final String LEGACY_KEY_FILE = "cache.key";
+    // 2: entries hold serialized transcripts with word timings instead of plain text
+    private static final byte FORMAT_VERSION = 2;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    // Entry files being written or replaced
+    private static final Pattern LEFTOVER_PATTERN = Pattern.compile("[0-9a-f]{64}\\.(tmp|old)");
+
+    private final Path directory;
+    private final long maxBytes;
+    private final SecretKeySpec secretKey;
+    private final SecureRandom random = new SecureRandom();
+    // Entry key -> entry file size, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Open (or create) a cache directory.
+     *
+     * @param directory Directory holding the encrypted entries
+     * @param keyFile File holding the cache key, outside {@code directory}
+     * @param maxBytes Maximum total size of the entries
+     * @throws IOException If the directory or key cannot be created or read
+     */
+    public TranscriptCache(Path directory, Path keyFile, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        this.secretKey = new SecretKeySpec(loadOrCreateKey(keyFile), "AES");
+
+        List<Path> files = new ArrayList<>();
+        List<Path> leftovers = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.forEach(p -> {
+                String name = p.getFileName().toString();
+                if (name.endsWith(ENTRY_SUFFIX)) {
+                    files.add(p);
+                } else if (LEFTOVER_PATTERN.matcher(name).matches()) {
+                    leftovers.add(p);
+                }
+            });
+        }
+        // Written or replaced when the app last exited
+        for (Path file : leftovers) {
+            FileManager.secureDelete(file, "");
+        }
+        Path legacyKey = directory.resolve(LEGACY_KEY_FILE);
+        if (Files.exists(legacyKey)) {
+            // Entries stored beside their key were never protected; dispose of both
+            for (Path file : files) {
+                FileManager.secureDelete(file, "");
+            }
+            files.clear();
+            FileManager.secureDelete(legacyKey, "");
+        }
+        files.sort(Comparator.comparing(TranscriptCache::lastModified));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            entries.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), size);
+            totalBytes += size;
+        }
+    }
+
+    /**
+     * Compute the cache key of a recording: SHA-256 over the recognition parameters
+     * and the PCM data, streamed so the recording is never fully in memory. The WAV
+     * header is excluded, so a repaired or re-written header still hits.
+     *
+     * @param wav The recording
+     * @param parameters Settings that change the transcript (backend, model, language, ...)
+     * @return Hex-encoded key
+     * @throws IOException If the recording cannot be read
+     */
+    public static String key(WavFile wav, Object... parameters) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        for (Object parameter : parameters) {
+            digest.update(String.valueOf(parameter).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        digest.update(String.format("%d/%d/%d", wav.sampleRate(), wav.channels(), wav.bitsPerSample())
+                .getBytes(StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel in = FileChannel.open(wav.path(), StandardOpenOption.READ)) {
+            long position = wav.dataOffset();
+            long end = wav.dataOffset() + wav.dataLength();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = in.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                digest.update(buffer.flip());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Look up a transcript, marking it most recently used.
+     * An entry that cannot be decrypted is securely deleted and reported as a miss.
+     *
+     * @return The cached transcript data, or null on a miss
+     */
+    public synchronized byte[] get(String key) {
+        if (!entries.containsKey(key)) {
+            return null;
+        }
+        Path file = entryPath(key);
+        try {
+            byte[] data = Files.readAllBytes(file);
+            if (data.length < 1 + IV_BYTES || data[0] != FORMAT_VERSION) {
+                throw new GeneralSecurityException("Unknown cache entry format");
+            }
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_BITS, data, 1, IV_BYTES));
+            cipher.updateAAD(key.getBytes(StandardCharsets.UTF_8));
+            byte[] plain = cipher.doFinal(data, 1 + IV_BYTES, data.length - 1 - IV_BYTES);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return plain;
+        } catch (IOException | GeneralSecurityException e) {
+            System.err.println("Discarding unreadable cache entry " + key + ": " + e.getMessage());
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Store a transcript, evicting least recently used entries beyond the size bound.
+     * Failures are logged and leave the cache without the entry.
+     */
+    public synchronized void put(String key, byte[] transcript) {
+        try {
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(key.getBytes(StandardCharsets.UTF_8));
+            byte[] encrypted = cipher.doFinal(transcript);
+
+            ByteBuffer data = ByteBuffer.allocate(1 + IV_BYTES + encrypted.length);
+            data.put(FORMAT_VERSION).put(iv).put(encrypted);
+            Path file = entryPath(key);
+            Path temp = directory.resolve(key + ".tmp");
+            Files.write(temp, data.array());
+            // Moving over the old entry would leave its contents on disk
+            Path previousFile = directory.resolve(key + ".old");
+            boolean replacing = Files.exists(file);
+            if (replacing) {
+                Files.move(file, previousFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            if (replacing) {
+                FileManager.secureDelete(previousFile, "");
+            }
+
+            Long previous = entries.put(key, (long) data.capacity());
+            totalBytes += data.capacity() - (previous != null ? previous : 0);
+            evict();
+        } catch (IOException | GeneralSecurityException e) {
+            System.err.println("Failed to cache transcript: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the number of cached transcripts.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the total size of the encrypted entries in bytes.
+     */
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            FileManager.secureDelete(entryPath(entry.getKey()), "");
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        FileManager.secureDelete(entryPath(key), "");
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static byte[] loadOrCreateKey(Path keyFile) throws IOException {
+        Path keyDirectory = keyFile.toAbsolutePath().getParent();
+        if (!Files.isDirectory(keyDirectory)) {
+            Files.createDirectories(keyDirectory);
+            restrictToOwner(keyDirectory, "rwx------");
+        }
+        if (Files.exists(keyFile)) {
+            // Tighten a key whose permissions were widened since it was created
+            restrictToOwner(keyFile, "rw-------");
+            byte[] key = Files.readAllBytes(keyFile);
+            if (key.length != 32) {
+                throw new IOException("Invalid cache key file: " + keyFile);
+            }
+            return key;
+        }
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        try {
+            Files.createFile(keyFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(keyFile);
+            restrictToOwner(keyFile, "rw-------");
+        }
+        Files.write(keyFile, key);
+        return key;
+    }
+
+    /**
+     * Give only the file's owner access: the POSIX permissions, or else an ACL with
+     * the owner as its only entry.
+     */
+    private static void restrictToOwner(Path path, String posixPermissions) throws IOException {
+        PosixFileAttributeView posix = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (posix != null) {
+            posix.setPermissions(PosixFilePermissions.fromString(posixPermissions));
+            return;
+        }
+        AclFileAttributeView acl = Files.getFileAttributeView(path, AclFileAttributeView.class);
+        if (acl != null) {
+            acl.setAcl(List.of(AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(acl.getOwner())
+                    .setPermissions(AclEntryPermission.values())
+                    .build()));
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.transcriber.file;
+
+import java.time.LocalDate;
+
+/**
+ * Filter on the patient details in transcription file names (see
+ * {@link FileManager#generateFilename}). Unset parts match everything.
+ *
+ * @param patient Part of the patient name, or null
+ * @param dob Part of the date of birth, or null
+ * @param from First creation date to include, or null
+ * @param to Last creation date to include, or null
+ */
+public record TranscriptionFilter(String patient, String dob, LocalDate from, LocalDate to) {
+
+    /**
+     * A filter from user input, compared the way names are sanitized for file names.
+     */
+    public static TranscriptionFilter of(String patient, String dob, LocalDate from, LocalDate to) {
+        return new TranscriptionFilter(key(patient), key(dob), from, to);
+    }
+
+    public boolean isEmpty() {
+        return patient == null && dob == null && from == null && to == null;
+    }
+
+    public boolean matches(TranscriptionIndex.Entry entry) {
+        if (patient != null && !entry.patient().toLowerCase().contains(patient)) {
+            return false;
+        }
+        if (dob != null && !entry.dob().toLowerCase().contains(dob)) {
+            return false;
+        }
+        if (from != null || to != null) {
+            LocalDate created = entry.createdDate();
+            return (from == null || !created.isBefore(from)) && (to == null || !created.isAfter(to));
+        }
+        return true;
+    }
+
+    private static String key(String value) {
+        return value == null || value.isBlank() ? null : FileManager.sanitizeComponent(value).toLowerCase();
+    }
+}
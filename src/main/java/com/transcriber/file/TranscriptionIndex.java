@@ -0,0 +1,664 @@
+package com.transcriber.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of the transcription files in a directory, kept up to date
+ * incrementally so the file list never has to re-list and stat the directory.
+ * Files directly in the directory and in its {@code yyyy/MM} directories are both
+ * indexed (see {@link FileManager#isTranscriptionLocation}), and a file moved from
+ * one to the other keeps its place in the list.
+ * <p>
+ * The index is loaded from a snapshot file on start, so the list is available at
+ * once (the snapshot is saved on close and periodically, not on every change, as a
+ * list missing recent changes is corrected on start anyway), and then reconciled with the directory on a background thread that goes on
+ * watching it. Changes are applied per file after each burst of file events, and
+ * the app reports its own writes through {@link #update} so they show up at once.
+ * Listing returns an immutable newest-first snapshot; lookup by file name is a hash
+ * lookup. Neither touches the disk or takes a lock.
+ */
+public class TranscriptionIndex implements AutoCloseable {
+
+    private static final String SUFFIX = ".txt";
+    private static final byte[] MAGIC = {'T', 'I', 'X'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final long DEBOUNCE_MS = 250;
+    // The snapshot is saved after this many changed entries, or this long after the first
+    // unsaved change, and on close
+    private static final int SNAPSHOT_AFTER_CHANGES = 500;
+    private static final long SNAPSHOT_INTERVAL_MS = 60_000;
+
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator.comparingLong(Entry::modified).reversed()
+            .thenComparing(Entry::path);
+
+    /**
+     * One transcription file, with the patient details parsed from its name
+     * ({@code patient_dob_yyyyMMdd_HHmmss.txt}, see {@link FileManager#generateFilename}).
+     *
+     * @param path The transcription file
+     * @param modified Last modification time in milliseconds since the epoch
+     * @param size File size in bytes
+     * @param patient Patient name component of the file name
+     * @param dob Date of birth component, or empty if the name has none
+     * @param timestamp Creation timestamp component ({@code yyyyMMdd_HHmmss}), or null
+     */
+    public record Entry(Path path, long modified, long size, String patient, String dob, String timestamp) {
+
+        public String fileName() {
+            return path.getFileName().toString();
+        }
+
+        /**
+         * The date the transcription was created: from its name, or else the date it
+         * was last modified.
+         */
+        public LocalDate createdDate() {
+            if (timestamp != null) {
+                try {
+                    return LocalDate.parse(timestamp.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+                } catch (DateTimeParseException e) {
+                    // Not a real date; fall back to the modification time
+                }
+            }
+            return LocalDate.ofInstant(Instant.ofEpochMilli(modified), ZoneId.systemDefault());
+        }
+
+        /**
+         * Describe a transcription file, parsing the patient details from its name.
+         */
+        public static Entry of(Path path, long modified, long size) {
+            String name = path.getFileName().toString();
+            name = name.substring(0, name.length() - SUFFIX.length());
+            String timestamp = null;
+            if (isTimestamp(name, name.length() - 15)) {
+                timestamp = name.substring(name.length() - 15);
+                name = name.substring(0, Math.max(0, name.length() - 16));
+            }
+            // Sanitized names and dates both may contain underscores; a date starts with a digit
+            int split = name.endsWith("_unknown") ? name.length() - 8 : -1;
+            for (int i = 0; split < 0 && i < name.length() - 1; i++) {
+                if (name.charAt(i) == '_' && Character.isDigit(name.charAt(i + 1))) {
+                    split = i;
+                }
+            }
+            if (split < 0) {
+                split = name.lastIndexOf('_');
+            }
+            if (split < 0) {
+                return new Entry(path, modified, size, name, "", timestamp);
+            }
+            return new Entry(path, modified, size, name.substring(0, split), name.substring(split + 1), timestamp);
+        }
+
+        /**
+         * Whether {@code name} has a {@code _yyyyMMdd_HHmmss} suffix starting at {@code start}.
+         */
+        private static boolean isTimestamp(String name, int start) {
+            if (start < 1 || name.charAt(start - 1) != '_' || name.charAt(start + 8) != '_') {
+                return false;
+            }
+            for (int i = start; i < name.length(); i++) {
+                if (i != start + 8 && !Character.isDigit(name.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Notified after the index changed, on the thread that changed it.
+     */
+    public interface Listener {
+        void indexChanged();
+    }
+
+    private final Path directory;
+    private final Path snapshotFile;
+    private final Listener listener;
+    // Guarded by this; published through the fields below
+    private final TreeSet<Entry> sorted = new TreeSet<>(NEWEST_FIRST);
+    private int unsavedChanges;
+    private long firstUnsavedNanos;
+    private final Map<String, Entry> byName = new ConcurrentHashMap<>();
+    private volatile List<Entry> newestFirst = List.of();
+    private volatile WatchService watcher;
+    // Held while the snapshot is written and swapped in (by the watcher thread and close())
+    private final Object snapshotLock = new Object();
+    // Watched directories by key; used by the watcher thread only
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+
+    /**
+     * Load the index from its snapshot and start keeping it up to date.
+     *
+     * @param directory The transcriptions directory
+     * @param snapshotFile Where the index is saved between runs
+     * @param listener Receiver of change notifications, or null
+     */
+    public TranscriptionIndex(Path directory, Path snapshotFile, Listener listener) {
+        this.directory = directory;
+        this.snapshotFile = snapshotFile;
+        this.listener = listener;
+        synchronized (this) {
+            for (Entry entry : readSnapshot()) {
+                put(entry);
+            }
+            publish();
+            unsavedChanges = 0;
+        }
+        try {
+            Files.createDirectories(directory);
+            WatchService service = FileSystems.getDefault().newWatchService();
+            try {
+                // Watch before scanning, so nothing changed during the scan is missed
+                watched.put(register(service, directory), directory);
+            } catch (IOException e) {
+                service.close();
+                throw e;
+            }
+            watcher = service;
+        } catch (IOException e) {
+            System.err.println("Transcription list will only reflect changes made by this app: " + e.getMessage());
+        }
+        Thread thread = new Thread(this::run, "TranscriptionIndex");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * All transcriptions, newest first. The list is immutable; later changes
+     * publish a new one.
+     */
+    public List<Entry> list() {
+        return newestFirst;
+    }
+
+    /**
+     * Look up a transcription by file name.
+     *
+     * @return The entry, or null if there is no such transcription
+     */
+    public Entry find(String fileName) {
+        return byName.get(fileName);
+    }
+
+    /**
+     * Re-read one file's metadata after the app wrote or deleted it, so the change
+     * is listed without waiting for the file event.
+     */
+    public void update(Path file) {
+        update(List.of(file));
+    }
+
+    /**
+     * Re-read the metadata of files the app wrote, moved or deleted, and notify the
+     * listener once.
+     */
+    public void update(Collection<Path> files) {
+        Map<Path, Entry> entries = new HashMap<>();
+        for (Path file : files) {
+            if (isTranscription(file) && FileManager.isTranscriptionLocation(directory, file)) {
+                entries.put(file, read(file));
+            }
+        }
+        boolean changed = false;
+        synchronized (this) {
+            for (Map.Entry<Path, Entry> entry : entries.entrySet()) {
+                changed |= entry.getValue() != null ? put(entry.getValue()) : remove(entry.getKey());
+            }
+            if (changed) {
+                publish();
+            }
+        }
+        if (changed && listener != null) {
+            listener.indexChanged();
+        }
+    }
+
+    /**
+     * Stop watching the directory and save the snapshot.
+     */
+    @Override
+    public void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                System.err.println("Failed to stop transcription watcher: " + e.getMessage());
+            }
+        }
+        saveSnapshot();
+    }
+
+    private void run() {
+        if (watcher != null) {
+            watchShards(directory, new HashSet<>());
+        }
+        reconcile();
+        saveSnapshot();
+        if (watcher == null) {
+            return;
+        }
+        try {
+            while (true) {
+                long wait = snapshotWaitMillis();
+                WatchKey key = wait < 0 ? watcher.take() : watcher.poll(wait, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    saveSnapshot();
+                    continue;
+                }
+                Set<Path> changed = new HashSet<>();
+                boolean overflow = false;
+                // Collect events until the directories have been quiet for a moment
+                while (key != null) {
+                    Path parent = watched.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else if (parent != null) {
+                            Path child = parent.resolve((Path) event.context());
+                            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                                    && FileManager.isShardDirectory(directory, child)) {
+                                // Files may have been moved in before the directory was watched
+                                watchShards(child, changed);
+                            } else {
+                                changed.add(child);
+                            }
+                        }
+                    }
+                    if (!key.reset()) {
+                        watched.remove(key);
+                        if (directory.equals(parent)) {
+                            System.err.println("Transcriptions directory is no longer watched: " + directory);
+                            return;
+                        }
+                    }
+                    key = watcher.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                }
+                if (overflow) {
+                    reconcile();
+                } else {
+                    update(changed);
+                }
+                if (snapshotWaitMillis() == 0) {
+                    saveSnapshot();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Watch a directory and the {@code yyyy/MM} directories in it, collecting the
+     * files found in them.
+     */
+    private void watchShards(Path parent, Set<Path> files) {
+        if (!parent.equals(directory)) {
+            try {
+                watched.put(register(watcher, parent), parent);
+            } catch (IOException | ClosedWatchServiceException e) {
+                System.err.println("Failed to watch " + parent + ": " + e.getMessage());
+                return;
+            }
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(parent)) {
+            for (Path child : children) {
+                if (FileManager.isShardDirectory(directory, child)) {
+                    if (Files.isDirectory(child)) {
+                        watchShards(child, files);
+                    }
+                } else if (!parent.equals(directory)) {
+                    files.add(child);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list " + parent + ": " + e.getMessage());
+        }
+    }
+
+    private static WatchKey register(WatchService service, Path directory) throws IOException {
+        return directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Bring the index in line with a full scan of the directory.
+     */
+    private void reconcile() {
+        Map<String, Entry> scanned = scan(directory);
+        if (scanned == null) {
+            return;
+        }
+        boolean changed = false;
+        synchronized (this) {
+            for (String name : byName.keySet().toArray(new String[0])) {
+                if (!scanned.containsKey(name)) {
+                    changed |= remove(name);
+                }
+            }
+            for (Entry entry : scanned.values()) {
+                changed |= put(entry);
+            }
+            if (changed) {
+                publish();
+            }
+        }
+        if (changed && listener != null) {
+            listener.indexChanged();
+        }
+    }
+
+    /**
+     * Read every transcription's metadata in a directory and its {@code yyyy/MM}
+     * directories, one pass over each.
+     *
+     * @return Entries by file name, or null if the directory could not be read
+     */
+    public static Map<String, Entry> scan(Path directory) {
+        Map<String, Entry> entries = new HashMap<>();
+        try {
+            Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 3,
+                    new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                            return dir.equals(directory) || FileManager.isShardDirectory(directory, dir)
+                                    ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                            if (attributes.isRegularFile() && isTranscription(file)
+                                    && FileManager.isTranscriptionLocation(directory, file)) {
+                                entries.put(file.getFileName().toString(), Entry.of(file,
+                                        attributes.lastModifiedTime().toMillis(), attributes.size()));
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                            if (file.equals(directory)) {
+                                throw e;
+                            }
+                            // Moved or deleted while scanning
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+            return entries;
+        } catch (IOException e) {
+            System.err.println("Failed to list transcriptions: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Add or replace an entry; caller holds the lock.
+     *
+     * @return Whether the index changed
+     */
+    private boolean put(Entry entry) {
+        Entry previous = byName.put(entry.fileName(), entry);
+        if (entry.equals(previous)) {
+            return false;
+        }
+        if (previous != null) {
+            sorted.remove(previous);
+        }
+        sorted.add(entry);
+        changed();
+        return true;
+    }
+
+    /**
+     * Remove a file's entry, unless the file was moved and its entry is for the new
+     * location; caller holds the lock.
+     *
+     * @return Whether the index changed
+     */
+    private boolean remove(Path file) {
+        Entry current = byName.get(file.getFileName().toString());
+        return current != null && current.path().equals(file) && remove(current.fileName());
+    }
+
+    /**
+     * Remove an entry; caller holds the lock.
+     *
+     * @return Whether the index changed
+     */
+    private boolean remove(String fileName) {
+        Entry previous = byName.remove(fileName);
+        if (previous == null) {
+            return false;
+        }
+        sorted.remove(previous);
+        changed();
+        return true;
+    }
+
+    /**
+     * Count a change not yet in the snapshot; caller holds the lock.
+     */
+    private void changed() {
+        if (unsavedChanges++ == 0) {
+            firstUnsavedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Publish the sorted entries to readers; caller holds the lock.
+     */
+    private void publish() {
+        newestFirst = List.copyOf(sorted);
+    }
+
+    /**
+     * Read a transcription's current metadata.
+     *
+     * @return The entry, or null if the file no longer exists
+     */
+    public static Entry read(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return Entry.of(file, attributes.lastModifiedTime().toMillis(), attributes.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Failed to read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A file's path relative to a transcriptions directory, with '/' separators, as
+     * stored in index files.
+     */
+    public static String relativePath(Path directory, Path file) {
+        Path relative = directory.relativize(file);
+        StringBuilder path = new StringBuilder();
+        for (Path name : relative) {
+            if (!path.isEmpty()) {
+                path.append('/');
+            }
+            path.append(name);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Resolve a path stored by {@link #relativePath}.
+     *
+     * @throws IOException If it does not name a transcription in the directory
+     */
+    public static Path resolve(Path directory, String relativePath) throws IOException {
+        Path file = directory.resolve(relativePath).normalize();
+        if (!isTranscription(file) || !FileManager.isTranscriptionLocation(directory, file)) {
+            throw new IOException("Not a transcription: " + relativePath);
+        }
+        return file;
+    }
+
+    /**
+     * Whether a path names a transcription file.
+     */
+    public static boolean isTranscription(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    /**
+     * Read the entries saved by the last run.
+     *
+     * @return The entries, or none if there is no usable snapshot
+     */
+    private List<Entry> readSnapshot() {
+        Path previous = sibling(".old");
+        try {
+            // A save was interrupted: use the last complete snapshot
+            if (Files.exists(previous)) {
+                if (Files.exists(snapshotFile)) {
+                    FileManager.secureDeleteCacheFile(previous);
+                } else {
+                    Files.move(previous, snapshotFile);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to recover transcription index: " + e.getMessage());
+        }
+        FileManager.secureDeleteCacheFile(sibling(".tmp"));
+        if (!Files.exists(snapshotFile)) {
+            return List.of();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readByte() != FORMAT_VERSION) {
+                return List.of();
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt transcription index");
+            }
+            Entry[] entries = new Entry[count];
+            for (int i = 0; i < count; i++) {
+                Path file = resolve(directory, in.readUTF());
+                long modified = in.readLong();
+                long size = in.readLong();
+                entries[i] = Entry.of(file, modified, size);
+            }
+            return Arrays.asList(entries);
+        } catch (IOException e) {
+            System.err.println("Failed to read transcription index, rebuilding: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Save the entries if they changed since they were last saved. Only paths (relative
+     * to the directory), times and sizes are stored; the rest is parsed from the names
+     * again.
+     */
+    private void saveSnapshot() {
+        synchronized (snapshotLock) {
+            List<Entry> entries;
+            synchronized (this) {
+                if (unsavedChanges == 0) {
+                    return;
+                }
+                unsavedChanges = 0;
+                entries = newestFirst;
+            }
+            writeSnapshot(entries);
+        }
+    }
+
+    /**
+     * How long until the snapshot is due to be saved.
+     *
+     * @return Milliseconds, 0 if it is due now, or -1 if it is up to date
+     */
+    private synchronized long snapshotWaitMillis() {
+        if (unsavedChanges == 0) {
+            return -1;
+        }
+        if (unsavedChanges >= SNAPSHOT_AFTER_CHANGES) {
+            return 0;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstUnsavedNanos);
+        return Math.max(0, SNAPSHOT_INTERVAL_MS - elapsed);
+    }
+
+    /**
+     * Write the entries to a new file, swap it in, and securely delete the previous one.
+     */
+    private void writeSnapshot(List<Entry> entries) {
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path temp = sibling(".tmp");
+            Path previous = sibling(".old");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.write(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeUTF(relativePath(directory, entry.path()));
+                    out.writeLong(entry.modified());
+                    out.writeLong(entry.size());
+                }
+            }
+            // Moving over the old file would leave its contents on disk
+            boolean replacing = Files.exists(snapshotFile);
+            if (replacing) {
+                Files.move(snapshotFile, previous, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, snapshotFile);
+            if (replacing) {
+                FileManager.secureDeleteCacheFile(previous);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to save transcription index: " + e.getMessage());
+        }
+    }
+
+    private Path sibling(String suffix) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + suffix);
+    }
+}
@@ -0,0 +1,131 @@
+package com.transcriber.file;
+
+import com.transcriber.audit.AuditLogger;
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Moves the transcriptions at the top level of the transcriptions directory into
+ * their {@code yyyy/MM} directories (see {@link Config#SHARDED_TRANSCRIPTIONS}) while
+ * the app runs.
+ * <p>
+ * Files are moved on a background thread, {@link Config#MIGRATION_BATCH_SIZE} at a
+ * time with a pause of {@link Config#MIGRATION_BATCH_PAUSE_MS} between batches, so
+ * saving and listing stay responsive. Each move is an audited rename through
+ * {@link FileManager#moveTranscription}. Both layouts are listed and searched, so the
+ * app works throughout; files open in the editor are left for the next start.
+ */
+public class TranscriptionMigrator implements AutoCloseable {
+
+    private final Path directory;
+    private final TranscriptionIndex index;
+    private final Predicate<Path> inUse;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Start moving the transcriptions in the background.
+     *
+     * @param directory The transcriptions directory
+     * @param index Index updated after each batch, or null
+     * @param inUse Whether a file is open and must not be moved now
+     */
+    public TranscriptionMigrator(Path directory, TranscriptionIndex index, Predicate<Path> inUse) {
+        this.directory = directory;
+        this.index = index;
+        this.inUse = inUse;
+        thread = new Thread(this::run, "TranscriptionMigrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop after the file being moved; the rest are moved on the next start.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void run() {
+        List<Path> pending = listTopLevel();
+        if (pending.isEmpty()) {
+            return;
+        }
+        AuditLogger.log("migrate_transcriptions_start", directory, "",
+                String.format("Moving %d transcription(s) into yyyy/MM directories", pending.size()));
+        int moved = 0;
+        int skipped = 0;
+        int visited = 0;
+        try {
+            for (int start = 0; start < pending.size() && !closed; start += Config.MIGRATION_BATCH_SIZE) {
+                if (start > 0) {
+                    Thread.sleep(Config.MIGRATION_BATCH_PAUSE_MS);
+                }
+                List<Path> changed = new ArrayList<>();
+                int end = Math.min(pending.size(), start + Config.MIGRATION_BATCH_SIZE);
+                for (Path file : pending.subList(start, end)) {
+                    if (closed) {
+                        break;
+                    }
+                    visited++;
+                    TranscriptionIndex.Entry entry = TranscriptionIndex.read(file);
+                    if (entry == null) {
+                        // Deleted since it was listed
+                        continue;
+                    }
+                    if (inUse.test(file)) {
+                        skipped++;
+                        continue;
+                    }
+                    Path target = FileManager.shardDirectory(directory, entry.createdDate()).resolve(entry.fileName());
+                    try {
+                        FileManager.moveTranscription(file, target);
+                        changed.add(file);
+                        changed.add(target);
+                        moved++;
+                    } catch (IOException e) {
+                        System.err.println("Failed to move " + file.getFileName() + ": " + e.getMessage());
+                        AuditLogger.log("move_transcription_failed", file, "", "Error: " + e);
+                        skipped++;
+                    }
+                }
+                if (index != null && !changed.isEmpty()) {
+                    index.update(changed);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+        int left = pending.size() - visited;
+        AuditLogger.log("migrate_transcriptions_end", directory, "",
+                String.format("Moved %d, skipped %d%s", moved, skipped,
+                        left > 0 ? String.format(", %d left for next start", left) : ""));
+    }
+
+    /**
+     * The transcriptions not yet in a {@code yyyy/MM} directory.
+     */
+    private List<Path> listTopLevel() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                if (TranscriptionIndex.isTranscription(child) && Files.isRegularFile(child)) {
+                    files.add(child);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list transcriptions to move: " + e.getMessage());
+        }
+        files.sort(null);
+        return files;
+    }
+}
@@ -0,0 +1,440 @@
+package com.transcriber.file;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary sidecar holding the time offsets and confidences of a
+ * transcription's words, stored next to the transcription file.
+ * <p>
+ * Words are grouped into blocks of {@value #BLOCK_WORDS}. Within a block, text
+ * offsets and start times are delta-encoded from the previous word as varints and
+ * confidences are quantized to one byte, so a word takes about six bytes. A small
+ * index of block positions follows the header; {@link #open} reads only the header
+ * and index, and word data is read and decoded block by block when asked for.
+ * <pre>
+ * header:  'T' 'W' 'T' version | int words | int blocks | int data length
+ * index:   per block: int data position | int first text offset | int first start ms
+ * data:    per word: varint Δoffset | varint length | zigzag varint Δstart ms
+ *                    | varint duration ms | byte confidence × 255
+ * </pre>
+ */
+public class WordTimings {
+
+    public static final String SIDECAR_SUFFIX = ".words";
+
+    private static final byte[] MAGIC = {'T', 'W', 'T'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final int BLOCK_WORDS = 128;
+
+    /**
+     * One recognized word.
+     *
+     * @param offset Position of the word in the transcription text
+     * @param length Length of the word in the text (0 if it could not be located)
+     * @param startMs Start of the word from the beginning of the recording
+     * @param endMs End of the word from the beginning of the recording
+     * @param confidence Recognition confidence, 0.0 to 1.0 (0 if not reported)
+     */
+    public record Word(int offset, int length, int startMs, int endMs, float confidence) {
+
+        /**
+         * Get this word moved by the given number of characters and milliseconds.
+         */
+        public Word shift(int chars, int millis) {
+            return new Word(offset + chars, length, startMs + millis, endMs + millis, confidence);
+        }
+
+        /**
+         * Get the end of the word in the transcription text.
+         */
+        public int end() {
+            return offset + length;
+        }
+    }
+
+    /**
+     * A single contiguous change between two versions of a text: everything before
+     * {@code start} and from {@code originalEnd} / {@code editedEnd} on is unchanged.
+     * Several scattered edits are treated as one change spanning all of them.
+     */
+    public record Edit(int start, int originalEnd, int editedEnd) {
+
+        /**
+         * Find the changed span between two texts from their common prefix and suffix.
+         */
+        public static Edit between(String original, String edited) {
+            int limit = Math.min(original.length(), edited.length());
+            int start = 0;
+            while (start < limit && original.charAt(start) == edited.charAt(start)) {
+                start++;
+            }
+            int originalEnd = original.length();
+            int editedEnd = edited.length();
+            while (originalEnd > start && editedEnd > start
+                    && original.charAt(originalEnd - 1) == edited.charAt(editedEnd - 1)) {
+                originalEnd--;
+                editedEnd--;
+            }
+            return new Edit(start, originalEnd, editedEnd);
+        }
+
+        /**
+         * Map a word of the original text onto the edited text.
+         *
+         * @return The moved word, or null if it overlaps the changed span
+         */
+        public Word map(Word word) {
+            if (word.end() <= start) {
+                return word;
+            }
+            if (word.offset() >= originalEnd) {
+                return word.shift(editedEnd - originalEnd, 0);
+            }
+            return null;
+        }
+
+        /**
+         * Map a position in the edited text back to the original text. Positions
+         * inside the changed span map to its end.
+         */
+        public int unmap(int editedOffset) {
+            if (editedOffset <= start) {
+                return editedOffset;
+            }
+            return Math.max(originalEnd, editedOffset - editedEnd + originalEnd);
+        }
+    }
+
+    private final Path file;
+    private final int wordCount;
+    private final int dataLength;
+    private final int[] blockPositions;
+    private final int[] blockOffsets;
+    private final int[] blockStarts;
+
+    private WordTimings(Path file, int wordCount, int dataLength, int[] blockPositions, int[] blockOffsets,
+                        int[] blockStarts) {
+        this.file = file;
+        this.wordCount = wordCount;
+        this.dataLength = dataLength;
+        this.blockPositions = blockPositions;
+        this.blockOffsets = blockOffsets;
+        this.blockStarts = blockStarts;
+    }
+
+    /**
+     * Get the sidecar path for a transcription file.
+     */
+    public static Path sidecarPath(Path transcription) {
+        String name = transcription.getFileName().toString();
+        int lastDot = name.lastIndexOf('.');
+        return transcription.resolveSibling((lastDot > 0 ? name.substring(0, lastDot) : name) + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Write a sidecar file, replacing any previous one atomically.
+     *
+     * @param file Sidecar path
+     * @param words Words ordered by text offset
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path file, List<Word> words) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, encode(words));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Open a sidecar file, reading only its header and block index.
+     *
+     * @throws IOException If the file cannot be read or is not a word timing file
+     */
+    public static WordTimings open(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(in, 0, HEADER_BYTES);
+            checkHeader(header);
+            int wordCount = header.getInt();
+            int blockCount = header.getInt();
+            int dataLength = header.getInt();
+            if (wordCount < 0 || blockCount != blockCount(wordCount) || dataLength < 0
+                    || in.size() != HEADER_BYTES + (long) blockCount * INDEX_ENTRY_BYTES + dataLength) {
+                throw new IOException("Corrupt word timing file: " + file);
+            }
+            ByteBuffer index = readFully(in, HEADER_BYTES, blockCount * INDEX_ENTRY_BYTES);
+            int[] positions = new int[blockCount];
+            int[] offsets = new int[blockCount];
+            int[] starts = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                positions[i] = index.getInt();
+                offsets[i] = index.getInt();
+                starts[i] = index.getInt();
+                if (positions[i] < (i > 0 ? positions[i - 1] : 0) || positions[i] > dataLength) {
+                    throw new IOException("Corrupt word timing file: " + file);
+                }
+            }
+            return new WordTimings(file, wordCount, dataLength, positions, offsets, starts);
+        }
+    }
+
+    /**
+     * Encode words into the sidecar format.
+     */
+    public static byte[] encode(List<Word> words) {
+        int blockCount = blockCount(words.size());
+        ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_BYTES);
+        VarintBuffer data = new VarintBuffer(words.size() * 6);
+        int previousOffset = 0;
+        int previousStart = 0;
+        for (int i = 0; i < words.size(); i++) {
+            Word word = words.get(i);
+            if (i % BLOCK_WORDS == 0) {
+                index.putInt(data.size()).putInt(word.offset()).putInt(word.startMs());
+                previousOffset = word.offset();
+                previousStart = word.startMs();
+            }
+            if (word.offset() < previousOffset) {
+                throw new IllegalArgumentException("Words must be ordered by text offset");
+            }
+            data.putVarint(word.offset() - previousOffset);
+            data.putVarint(word.length());
+            data.putVarint(zigzag(word.startMs() - previousStart));
+            data.putVarint(Math.max(0, word.endMs() - word.startMs()));
+            data.put((byte) Math.round(Math.max(0f, Math.min(1f, word.confidence())) * 255));
+            previousOffset = word.offset();
+            previousStart = word.startMs();
+        }
+        ByteBuffer file = ByteBuffer.allocate(HEADER_BYTES + index.capacity() + data.size());
+        file.put(MAGIC).put(FORMAT_VERSION).putInt(words.size()).putInt(blockCount).putInt(data.size());
+        file.put(index.array());
+        file.put(data.array(), 0, data.size());
+        return file.array();
+    }
+
+    /**
+     * Decode a complete sidecar held in memory.
+     *
+     * @throws IOException If the data is not a valid word timing file
+     */
+    public static List<Word> decode(byte[] bytes) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            checkHeader(buffer);
+            int wordCount = buffer.getInt();
+            int blockCount = buffer.getInt();
+            buffer.getInt();
+            if (wordCount < 0 || blockCount != blockCount(wordCount)) {
+                throw new IOException("Corrupt word timing data");
+            }
+            ByteBuffer index = buffer.slice(HEADER_BYTES, blockCount * INDEX_ENTRY_BYTES);
+            ByteBuffer data = buffer.slice(HEADER_BYTES + blockCount * INDEX_ENTRY_BYTES,
+                    bytes.length - HEADER_BYTES - blockCount * INDEX_ENTRY_BYTES);
+            List<Word> words = new ArrayList<>(wordCount);
+            for (int block = 0; block < blockCount; block++) {
+                index.getInt();
+                decodeBlock(data, index.getInt(), index.getInt(), blockSize(wordCount, block), words);
+            }
+            return words;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated word timing data", e);
+        }
+    }
+
+    /**
+     * Get the number of words.
+     */
+    public int size() {
+        return wordCount;
+    }
+
+    /**
+     * Read a range of words, decoding only the blocks that hold them.
+     *
+     * @param from Index of the first word
+     * @param to Index after the last word
+     * @throws IOException If the file cannot be read
+     */
+    public List<Word> read(int from, int to) throws IOException {
+        from = Math.max(0, from);
+        to = Math.min(wordCount, to);
+        if (from >= to) {
+            return List.of();
+        }
+        int firstBlock = from / BLOCK_WORDS;
+        List<Word> words = readBlocks(firstBlock, (to - 1) / BLOCK_WORDS + 1);
+        return words.subList(from - firstBlock * BLOCK_WORDS, to - firstBlock * BLOCK_WORDS);
+    }
+
+    /**
+     * Read all words.
+     *
+     * @throws IOException If the file cannot be read
+     */
+    public List<Word> readAll() throws IOException {
+        return read(0, wordCount);
+    }
+
+    /**
+     * Find the first word at or after a text position whose confidence is below a
+     * threshold, reading blocks one at a time from that position on.
+     *
+     * @param offset Text position to search from
+     * @param threshold Confidence below which a word counts as uncertain
+     * @return The word, or null if there is none
+     * @throws IOException If the file cannot be read
+     */
+    public Word nextBelow(int offset, float threshold) throws IOException {
+        for (int block = blockAt(offset); block < blockPositions.length; block++) {
+            for (Word word : readBlocks(block, block + 1)) {
+                if (word.offset() >= offset && word.length() > 0 && word.confidence() < threshold) {
+                    return word;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the block that may hold the first word at or after a text position.
+     */
+    private int blockAt(int offset) {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blockOffsets[middle] < offset) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private List<Word> readBlocks(int firstBlock, int endBlock) throws IOException {
+        int start = blockPositions[firstBlock];
+        int end = endBlock < blockPositions.length ? blockPositions[endBlock] : dataLength;
+        long dataStart = HEADER_BYTES + (long) blockPositions.length * INDEX_ENTRY_BYTES;
+        ByteBuffer data;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = readFully(in, dataStart + start, end - start);
+        }
+        List<Word> words = new ArrayList<>((endBlock - firstBlock) * BLOCK_WORDS);
+        try {
+            for (int block = firstBlock; block < endBlock; block++) {
+                decodeBlock(data, blockOffsets[block], blockStarts[block], blockSize(wordCount, block), words);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt word timing file: " + file, e);
+        }
+        return words;
+    }
+
+    private static void decodeBlock(ByteBuffer data, int offset, int start, int count, List<Word> words) {
+        for (int i = 0; i < count; i++) {
+            offset += getVarint(data);
+            int length = getVarint(data);
+            start += unzigzag(getVarint(data));
+            int duration = getVarint(data);
+            float confidence = (data.get() & 0xFF) / 255f;
+            words.add(new Word(offset, length, start, start + duration, confidence));
+        }
+    }
+
+    private static void checkHeader(ByteBuffer header) throws IOException {
+        for (byte b : MAGIC) {
+            if (header.get() != b) {
+                throw new IOException("Not a word timing file");
+            }
+        }
+        if (header.get() != FORMAT_VERSION) {
+            throw new IOException("Unsupported word timing format");
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated word timing file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int blockCount(int wordCount) {
+        return (wordCount + BLOCK_WORDS - 1) / BLOCK_WORDS;
+    }
+
+    private static int blockSize(int wordCount, int block) {
+        return Math.min(BLOCK_WORDS, wordCount - block * BLOCK_WORDS);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int getVarint(ByteBuffer data) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = data.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    /**
+     * Growable byte buffer for the varint-encoded word data.
+     */
+    private static final class VarintBuffer {
+        private byte[] bytes;
+        private int size;
+
+        VarintBuffer(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void put(byte b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[size++] = b;
+        }
+
+        void putVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+    }
+}
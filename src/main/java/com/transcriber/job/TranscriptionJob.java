@@ -0,0 +1,126 @@
+package com.transcriber.job;
+
+import com.transcriber.cloud.InProgressTranscription;
+
+import java.nio.file.Path;
+
+/**
+ * One recording queued for transcription, with the patient context it was
+ * submitted with and its current progress.
+ */
+public class TranscriptionJob {
+    
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    private final int id;
+    private final Path recording;
+    private final String patient;
+    private final String dob;
+    private final Path templatePath;
+    private final InProgressTranscription pending;
+    private final boolean resumed;
+    
+    private volatile State state = State.QUEUED;
+    private volatile String status = "Queued";
+    private volatile Path transcriptionFile;
+    private volatile String error;
+    
+    TranscriptionJob(int id, Path recording, String patient, String dob, Path templatePath,
+                     InProgressTranscription pending, boolean resumed) {
+        this.id = id;
+        this.recording = recording;
+        this.patient = patient;
+        this.dob = dob;
+        this.templatePath = templatePath;
+        this.pending = pending;
+        this.resumed = resumed;
+        if (resumed) {
+            this.status = "Resuming from last session";
+        }
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public Path getRecording() {
+        return recording;
+    }
+    
+    public String getPatient() {
+        return patient;
+    }
+    
+    public String getDob() {
+        return dob;
+    }
+    
+    /**
+     * Get the template to apply, or null to save the bare transcript.
+     */
+    public Path getTemplatePath() {
+        return templatePath;
+    }
+    
+    /**
+     * Whether the job was restored from the job journal after an app exit.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    /**
+     * Get the latest human-readable progress message.
+     */
+    public String getStatus() {
+        return status;
+    }
+    
+    /**
+     * Get the saved transcription file once the job has completed.
+     */
+    public Path getTranscriptionFile() {
+        return transcriptionFile;
+    }
+    
+    /**
+     * Get the failure message if the job failed.
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+    
+    InProgressTranscription getPending() {
+        return pending;
+    }
+    
+    void update(State state, String status) {
+        this.state = state;
+        this.status = status;
+    }
+    
+    void complete(Path transcriptionFile) {
+        this.transcriptionFile = transcriptionFile;
+        update(State.COMPLETED, "Saved " + transcriptionFile.getFileName());
+    }
+    
+    void fail(String error) {
+        this.error = error;
+        update(State.FAILED, "Failed: " + error);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("#%d %s – %s", id, patient, status);
+    }
+}
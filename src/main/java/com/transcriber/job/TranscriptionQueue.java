@@ -0,0 +1,238 @@
+package com.transcriber.job;
+
+import com.transcriber.audit.AuditLogger;
+import com.transcriber.cloud.InProgressTranscription;
+import com.transcriber.cloud.Transcript;
+import com.transcriber.cloud.TranscriptionBackend;
+import com.transcriber.cloud.TranscriptionBackends;
+import com.transcriber.file.FileManager;
+import com.transcriber.file.JobJournal;
+import com.transcriber.file.WordTimings;
+import com.transcriber.template.TemplateManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of transcription jobs.
+ * Each job runs upload, recognition, templating and saving on its own virtual
+ * thread; a semaphore limits how many jobs talk to the cloud at once, so further
+ * recordings can be queued while earlier ones are still being transcribed.
+ */
+public class TranscriptionQueue {
+    
+    /**
+     * Receives job progress on the job's thread.
+     */
+    public interface Listener {
+        /**
+         * The job's state or status message changed.
+         */
+        void jobUpdated(TranscriptionJob job);
+        
+        /**
+         * The job completed or failed; called exactly once per job.
+         */
+        void jobFinished(TranscriptionJob job);
+    }
+    
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Path, TranscriptionJob> activeJobs = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final Semaphore permits;
+    private final int capacity;
+    private final Listener listener;
+    
+    /**
+     * @param concurrency Maximum number of jobs running at once
+     * @param capacity Maximum number of queued and running jobs
+     * @param listener Receiver of job updates
+     */
+    public TranscriptionQueue(int concurrency, int capacity, Listener listener) {
+        this.permits = new Semaphore(Math.max(1, concurrency), true);
+        this.capacity = Math.max(1, capacity);
+        this.listener = listener;
+    }
+    
+    /**
+     * Queue a recording for transcription.
+     * The job owns the recording (and its in-progress transcription) from here on:
+     * the recording is securely deleted once the transcription is saved.
+     * 
+     * @param recording Recording to transcribe
+     * @param patient Patient name
+     * @param dob Patient date of birth
+     * @param templatePath Template to apply, or null for the bare transcript
+     * @param pending In-progress transcription of the recording, or null to upload it whole
+     * @return The queued job
+     * @throws IllegalStateException If the recording is already queued or the queue is full
+     */
+    public synchronized TranscriptionJob submit(Path recording, String patient, String dob, Path templatePath,
+                                                InProgressTranscription pending) {
+        if (activeJobs.containsKey(recording)) {
+            throw new IllegalStateException("This recording is already queued for transcription.");
+        }
+        if (activeJobs.size() >= capacity) {
+            throw new IllegalStateException("Transcription queue is full (" + capacity + " jobs).");
+        }
+        JobJournal.submitted(recording, patient, dob, templatePath);
+        return enqueue(recording, patient, dob, templatePath, pending, false);
+    }
+    
+    /**
+     * Restart the jobs the job journal shows were interrupted by the last app exit.
+     * Their recognition is re-attached rather than repeated where the backend
+     * supports it; uploads left by work that cannot be finished (e.g. recording
+     * segments) are released in the background.
+     * 
+     * @return The resumed jobs
+     */
+    public synchronized List<TranscriptionJob> resumeInterrupted() {
+        Map<Path, JobJournal.Entry> interrupted = JobJournal.pending();
+        JobJournal.compact();
+        
+        List<TranscriptionJob> resumed = new ArrayList<>();
+        for (JobJournal.Entry entry : interrupted.values()) {
+            if (!entry.isSubmitted()) {
+                executor.submit(() -> TranscriptionBackends.get().abandon(entry.recording()));
+            } else if (!activeJobs.containsKey(entry.recording())) {
+                resumed.add(enqueue(entry.recording(), entry.patient(), entry.dob(), entry.template(), null, true));
+            }
+        }
+        return resumed;
+    }
+    
+    private TranscriptionJob enqueue(Path recording, String patient, String dob, Path templatePath,
+                                     InProgressTranscription pending, boolean resumed) {
+        TranscriptionJob job = new TranscriptionJob(nextId.getAndIncrement(), recording, patient, dob,
+                templatePath, pending, resumed);
+        activeJobs.put(recording, job);
+        executor.submit(() -> run(job));
+        return job;
+    }
+    
+    /**
+     * Get the recordings of all queued and running jobs.
+     */
+    public Set<Path> getActiveRecordings() {
+        return Set.copyOf(activeJobs.keySet());
+    }
+    
+    /**
+     * Get the number of queued and running jobs.
+     */
+    public int getActiveCount() {
+        return activeJobs.size();
+    }
+    
+    private void run(TranscriptionJob job) {
+        try {
+            if (permits.availablePermits() == 0) {
+                update(job, TranscriptionJob.State.QUEUED, "Waiting for a free slot…");
+            }
+            permits.acquire();
+            try {
+                update(job, TranscriptionJob.State.RUNNING, "Starting…");
+                Transcript transcript = transcribe(job);
+                
+                update(job, TranscriptionJob.State.RUNNING, "Saving…");
+                Path saved = save(job, transcript);
+                FileManager.secureDelete(job.getRecording(), job.getPatient());
+                job.complete(saved);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Transcription interrupted");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Transcription job #" + job.getId() + " failed: " + e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            JobJournal.finished(job.getRecording());
+            activeJobs.remove(job.getRecording());
+            listener.jobFinished(job);
+        }
+    }
+    
+    /**
+     * Get the transcript from the job's in-progress transcription if it has one,
+     * falling back to uploading the full recording.
+     */
+    private Transcript transcribe(TranscriptionJob job) throws IOException {
+        InProgressTranscription pending = job.getPending();
+        if (pending != null) {
+            try {
+                return pending.awaitTranscript(status -> update(job, TranscriptionJob.State.RUNNING, status));
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                update(job, TranscriptionJob.State.RUNNING, "Incremental transcription failed, sending full recording…");
+            }
+        }
+        TranscriptionBackend backend = TranscriptionBackends.get();
+        Consumer<String> status = message -> update(job, TranscriptionJob.State.RUNNING, message);
+        return TranscriptionBackend.await(job.isResumed()
+                ? backend.resumeAsync(job.getRecording(), job.getPatient(), status)
+                : backend.transcribeAsync(job.getRecording(), job.getPatient(), status));
+    }
+    
+    /**
+     * Apply the job's template and save the result, with the transcript's word
+     * timings in a sidecar file whose offsets point into the saved text.
+     */
+    private Path save(TranscriptionJob job, Transcript transcript) throws IOException {
+        String finalText = transcript.text();
+        if (job.getTemplatePath() != null) {
+            Map<String, String> context = new HashMap<>();
+            context.put("PATIENT", job.getPatient());
+            context.put("DOB", job.getDob());
+            finalText = TemplateManager.applyTemplate(job.getTemplatePath(), transcript.text(), context);
+        }
+        // Jobs for the same patient can finish within the same second
+        Path path;
+        synchronized (this) {
+            path = FileManager.generateFilename(job.getPatient(), job.getDob());
+            String name = path.getFileName().toString();
+            String base = name.substring(0, name.length() - ".txt".length());
+            for (int n = 2; Files.exists(path); n++) {
+                path = path.resolveSibling(base + "_" + n + ".txt");
+            }
+            FileManager.saveTranscription(path, finalText);
+        }
+        
+        int start = transcript.text().isEmpty() ? -1 : finalText.indexOf(transcript.text());
+        if (start >= 0 && !transcript.words().isEmpty()) {
+            try {
+                List<WordTimings.Word> words = new ArrayList<>(transcript.words().size());
+                for (WordTimings.Word word : transcript.words()) {
+                    words.add(word.shift(start, 0));
+                }
+                Path sidecar = WordTimings.sidecarPath(path);
+                WordTimings.write(sidecar, words);
+                AuditLogger.log("save_word_timings", sidecar, job.getPatient(), 
+                        String.format("Saved timings of %d word(s)", words.size()));
+            } catch (IOException e) {
+                // The transcription itself is saved; only word review is unavailable
+                System.err.println("Failed to save word timings: " + e.getMessage());
+            }
+        }
+        return path;
+    }
+    
+    private void update(TranscriptionJob job, TranscriptionJob.State state, String status) {
+        job.update(state, status);
+        listener.jobUpdated(job);
+    }
+}
@@ -0,0 +1,821 @@
+package com.transcriber.search;
+
+import com.transcriber.file.FileManager;
+import com.transcriber.file.TranscriptionIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-text index of the transcriptions in a directory, answering {@link SearchQuery}s.
+ * <p>
+ * Each transcription is held as its sequence of word ids (varint-encoded), and each
+ * word has an ascending list of the documents containing it. A query intersects the
+ * lists of its words and prefixes (prefixes are looked up in a sorted vocabulary),
+ * filters the remaining documents by patient and date, and checks phrases against
+ * their word sequences. Saved and deleted transcriptions are re-indexed on a
+ * background thread, through {@link FileManager.ChangeListener}; moved ones keep
+ * their words under the new path.
+ * <p>
+ * The index is saved to one file so it is not rebuilt on every start; files changed
+ * since it was saved are re-indexed after loading it. When a transcription is
+ * deleted its postings (and words no other transcription uses) are dropped, and
+ * shortly after (once for a burst of deletions) the file is rewritten without them
+ * and the previous file is disposed of with {@link FileManager#secureDelete}. Word
+ * ids are renumbered when saving, so the words dropped are not kept as empty slots.
+ */
+public class SearchIndex implements FileManager.ChangeListener, AutoCloseable {
+
+    private static final byte[] MAGIC = {'T', 'S', 'X'};
+    private static final byte FORMAT_VERSION = 1;
+    // Save after this many re-indexed transcriptions; deletions are saved this long after
+    // the first one, together with any made meanwhile
+    private static final int SAVE_AFTER_CHANGES = 200;
+    private static final long PURGE_DELAY_MS = 2000;
+    // Phrase scanning reads encoded words eight bytes at a time
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * One indexed transcription.
+     *
+     * @param entry The file, with the details parsed from its name
+     * @param patient Patient name as lower-case words joined by '_'
+     * @param date Creation date as yyyyMMdd
+     * @param words Word ids in text order, varint-encoded
+     */
+    private record Document(TranscriptionIndex.Entry entry, String patient, int date, byte[] words) {
+    }
+
+    private final Path directory;
+    private final Path indexFile;
+    private final ThreadPoolExecutor indexer;
+
+    // Vocabulary and postings by word id, guarded by this; ids of unused words are not reused
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final TreeMap<String, Integer> sortedWords = new TreeMap<>();
+    private String[] words = new String[1024];
+    private int[][] postings = new int[1024][];
+    private int[] postingSizes = new int[1024];
+    private int wordCount;
+    // Documents by id, null once removed; a re-indexed file gets a new id
+    private Document[] documents = new Document[1024];
+    private int documentCount;
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private int[] decoded = new int[1024];
+    private volatile boolean ready;
+
+    // Indexer thread only
+    private int unsavedChanges;
+    private boolean purge;
+    private boolean purgeScheduled;
+    private boolean purgeDue;
+
+    /**
+     * Load the index of a directory in the background, re-indexing what changed since
+     * it was saved.
+     *
+     * @param directory The transcriptions directory
+     * @param indexFile Where the index is saved
+     */
+    public SearchIndex(Path directory, Path indexFile) {
+        this.directory = directory.toAbsolutePath();
+        this.indexFile = indexFile;
+        this.indexer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "SearchIndexer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        indexer.execute(this::load);
+    }
+
+    /**
+     * Whether the index can be searched: the saved index was loaded, or the index
+     * was built if there was none.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * The number of indexed transcriptions.
+     */
+    public synchronized int size() {
+        return documentIds.size();
+    }
+
+    @Override
+    public void transcriptionSaved(Path file) {
+        if (isIndexed(file)) {
+            submit(() -> index(file));
+        }
+    }
+
+    @Override
+    public void transcriptionMoved(Path from, Path to) {
+        if (isIndexed(to)) {
+            submit(() -> move(to));
+        } else {
+            fileDeleted(from);
+        }
+    }
+
+    @Override
+    public void fileDeleted(Path file) {
+        if (isIndexed(file)) {
+            submit(() -> {
+                synchronized (this) {
+                    removeDocument(file.getFileName().toString());
+                }
+                // Also when it was not indexed, in case an earlier save still holds it
+                purge = true;
+            });
+        }
+    }
+
+    /**
+     * Find the transcriptions matching a query.
+     *
+     * @return The matches, newest first; none while the index is loading
+     */
+    public List<TranscriptionIndex.Entry> search(SearchQuery query) {
+        return ready ? find(query) : List.of();
+    }
+
+    private synchronized List<TranscriptionIndex.Entry> find(SearchQuery query) {
+        // Candidate documents: the intersection of one ascending list per word and prefix
+        List<int[]> lists = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        List<byte[]> phrases = new ArrayList<>();
+        for (List<String> phrase : query.phrases()) {
+            VarIntWriter encoded = new VarIntWriter(phrase.size() * 2);
+            for (String word : phrase) {
+                Integer id = wordIds.get(word);
+                if (id == null) {
+                    return List.of();
+                }
+                encoded.write(id);
+                lists.add(postings[id]);
+                sizes.add(postingSizes[id]);
+            }
+            if (phrase.size() > 1) {
+                phrases.add(encoded.toByteArray());
+            }
+        }
+        for (String prefix : query.prefixes()) {
+            BitSet matches = new BitSet(documentCount);
+            for (int id : sortedWords.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                for (int i = 0; i < postingSizes[id]; i++) {
+                    matches.set(postings[id][i]);
+                }
+            }
+            if (matches.isEmpty()) {
+                return List.of();
+            }
+            int[] list = matches.stream().toArray();
+            lists.add(list);
+            sizes.add(list.length);
+        }
+
+        int smallest = -1;
+        for (int i = 0; i < lists.size(); i++) {
+            if (smallest < 0 || sizes.get(i) < sizes.get(smallest)) {
+                smallest = i;
+            }
+        }
+        long[] found = new long[16];
+        int foundCount = 0;
+        int count = smallest >= 0 ? sizes.get(smallest) : documentCount;
+        for (int i = 0; i < count; i++) {
+            int id = smallest >= 0 ? lists.get(smallest)[i] : i;
+            Document document = documents[id];
+            if (document == null || !matches(document, query) || !inAll(id, lists, sizes, smallest)) {
+                continue;
+            }
+            boolean phrasesFound = true;
+            for (int p = 0; p < phrases.size() && phrasesFound; p++) {
+                phrasesFound = containsPhrase(document.words(), phrases.get(p));
+            }
+            if (phrasesFound) {
+                if (foundCount == found.length) {
+                    found = Arrays.copyOf(found, foundCount * 2);
+                }
+                found[foundCount++] = id;
+            }
+        }
+        return newestFirst(found, foundCount);
+    }
+
+    /**
+     * Save any changes and stop indexing.
+     */
+    @Override
+    public void close() {
+        submit(() -> {
+            if (purge || unsavedChanges > 0) {
+                save();
+            }
+        });
+        indexer.shutdown();
+        try {
+            if (!indexer.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Search index was not saved before exit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Split text into lower-case words: runs of letters and digits.
+     */
+    static List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                tokens.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private boolean isIndexed(Path file) {
+        return TranscriptionIndex.isTranscription(file)
+                && FileManager.isTranscriptionLocation(directory, file.toAbsolutePath());
+    }
+
+    /**
+     * Run a task on the indexer thread, then save if it is due and nothing else is
+     * waiting to be indexed.
+     */
+    private void submit(Runnable task) {
+        try {
+            indexer.execute(() -> {
+                task.run();
+                if (purge && !purgeDue && !purgeScheduled) {
+                    purgeScheduled = true;
+                    CompletableFuture.delayedExecutor(PURGE_DELAY_MS, TimeUnit.MILLISECONDS, this::submit)
+                            .execute(() -> {
+                                purgeScheduled = false;
+                                // Not due if a save since has already dropped the deletions
+                                purgeDue = purge;
+                            });
+                }
+                if (indexer.getQueue().isEmpty() && (purgeDue || unsavedChanges >= SAVE_AFTER_CHANGES)) {
+                    save();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Load the saved index and bring it up to date with the directory.
+     */
+    private void load() {
+        Path previous = sibling(".old");
+        try {
+            // A save was interrupted: use the last complete index and rewrite it
+            if (Files.exists(previous)) {
+                if (Files.exists(indexFile)) {
+                    FileManager.secureDelete(previous, "");
+                } else {
+                    Files.move(previous, indexFile);
+                }
+                purge = true;
+            }
+            FileManager.secureDelete(sibling(".tmp"), "");
+            if (Files.exists(indexFile)) {
+                read();
+                // Searchable while it is checked against the directory
+                ready = true;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read search index, rebuilding: " + e.getMessage());
+            synchronized (this) {
+                clear();
+            }
+            purge = true;
+        }
+
+        Map<String, TranscriptionIndex.Entry> files = TranscriptionIndex.scan(directory);
+        if (files != null) {
+            List<String> removed = new ArrayList<>();
+            synchronized (this) {
+                for (String name : documentIds.keySet()) {
+                    if (!files.containsKey(name)) {
+                        removed.add(name);
+                    }
+                }
+                for (String name : removed) {
+                    removeDocument(name);
+                }
+            }
+            purge |= !removed.isEmpty();
+            for (TranscriptionIndex.Entry entry : files.values()) {
+                boolean current;
+                synchronized (this) {
+                    Integer id = documentIds.get(entry.fileName());
+                    current = id != null && documents[id].entry().equals(entry);
+                }
+                if (!current) {
+                    index(entry.path());
+                }
+            }
+        }
+        synchronized (this) {
+            // Drop the spare capacity the postings grew with
+            for (int word = 0; word < wordCount; word++) {
+                if (postings[word] != null && postings[word].length > postingSizes[word]) {
+                    postings[word] = Arrays.copyOf(postings[word], postingSizes[word]);
+                }
+            }
+        }
+        ready = true;
+        if (purge || unsavedChanges > 0) {
+            save();
+        }
+    }
+
+    /**
+     * Index (or re-index) a transcription from its file.
+     */
+    private void index(Path file) {
+        TranscriptionIndex.Entry entry = TranscriptionIndex.read(file);
+        String text = null;
+        if (entry != null) {
+            try {
+                text = Files.readString(file);
+            } catch (IOException e) {
+                System.err.println("Failed to index " + file.getFileName() + ": " + e.getMessage());
+                return;
+            }
+        }
+        List<String> tokens = text != null ? tokens(text) : List.of();
+        synchronized (this) {
+            boolean replaced = removeDocument(file.getFileName().toString());
+            if (entry == null) {
+                // Deleted before it could be indexed
+                purge |= replaced;
+                return;
+            }
+            VarIntWriter encoded = new VarIntWriter(tokens.size() * 2);
+            for (String token : tokens) {
+                Integer id = wordIds.get(token);
+                if (id == null) {
+                    id = addWord(wordCount, token);
+                }
+                encoded.write(id);
+            }
+            addDocument(entry, encoded.toByteArray());
+        }
+        unsavedChanges++;
+    }
+
+    /**
+     * Point a transcription's document at the file's new location, keeping its words,
+     * or index it if it was not indexed yet.
+     */
+    private void move(Path file) {
+        TranscriptionIndex.Entry entry = TranscriptionIndex.read(file);
+        if (entry == null) {
+            // Deleted since; that is reported separately
+            return;
+        }
+        synchronized (this) {
+            Integer id = documentIds.get(entry.fileName());
+            if (id != null) {
+                Document document = documents[id];
+                documents[id] = new Document(entry, document.patient(), document.date(), document.words());
+                unsavedChanges++;
+                return;
+            }
+        }
+        index(file);
+    }
+
+    /**
+     * Add a document with a new id; caller holds the lock.
+     */
+    private void addDocument(TranscriptionIndex.Entry entry, byte[] encoded) {
+        int id = documentCount++;
+        if (id == documents.length) {
+            documents = Arrays.copyOf(documents, id * 2);
+        }
+        documents[id] = new Document(entry, String.join("_", tokens(entry.patient())), date(entry), encoded);
+        documentIds.put(entry.fileName(), id);
+        for (int i = 0; i < encoded.length; ) {
+            int word = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = encoded[i++];
+                word |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            // Ids only grow, so the document is already listed if it is last
+            int size = postingSizes[word];
+            if (size > 0 && postings[word][size - 1] == id) {
+                continue;
+            }
+            if (postings[word] == null) {
+                postings[word] = new int[4];
+            } else if (size == postings[word].length) {
+                postings[word] = Arrays.copyOf(postings[word], size * 2);
+            }
+            postings[word][size] = id;
+            postingSizes[word] = size + 1;
+        }
+    }
+
+    /**
+     * Remove a document and its postings, and forget words no other document uses;
+     * caller holds the lock.
+     *
+     * @return Whether the document was indexed
+     */
+    private boolean removeDocument(String fileName) {
+        Integer id = documentIds.remove(fileName);
+        if (id == null) {
+            return false;
+        }
+        Document document = documents[id];
+        documents[id] = null;
+        int length = decode(document);
+        for (int i = 0; i < length; i++) {
+            int word = decoded[i];
+            int size = postingSizes[word];
+            int at = Arrays.binarySearch(postings[word], 0, size, id);
+            if (at < 0) {
+                continue;
+            }
+            System.arraycopy(postings[word], at + 1, postings[word], at, size - at - 1);
+            postingSizes[word] = --size;
+            if (size == 0) {
+                wordIds.remove(words[word]);
+                sortedWords.remove(words[word]);
+                words[word] = null;
+                postings[word] = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a word to the vocabulary; caller holds the lock.
+     *
+     * @return Its id
+     */
+    private int addWord(int id, String word) {
+        ensureWordCapacity(id + 1);
+        wordCount = Math.max(wordCount, id + 1);
+        words[id] = word;
+        wordIds.put(word, id);
+        sortedWords.put(word, id);
+        return id;
+    }
+
+    private void ensureWordCapacity(int count) {
+        if (count > words.length) {
+            int capacity = Math.max(words.length * 2, count);
+            words = Arrays.copyOf(words, capacity);
+            postings = Arrays.copyOf(postings, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+        }
+    }
+
+    private void clear() {
+        wordIds.clear();
+        sortedWords.clear();
+        words = new String[1024];
+        postings = new int[1024][];
+        postingSizes = new int[1024];
+        wordCount = 0;
+        documents = new Document[1024];
+        documentCount = 0;
+        documentIds.clear();
+    }
+
+    /**
+     * Decode a document's word ids into {@code decoded}; caller holds the lock.
+     *
+     * @return The number of words
+     */
+    private int decode(Document document) {
+        byte[] encoded = document.words();
+        int length = 0;
+        for (int i = 0; i < encoded.length; ) {
+            int word = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = encoded[i++];
+                word |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (length == decoded.length) {
+                decoded = Arrays.copyOf(decoded, length * 2);
+            }
+            decoded[length++] = word;
+        }
+        return length;
+    }
+
+    /**
+     * Whether encoded words contain an encoded phrase. Varints are prefix-free, so
+     * a byte match that starts where a word starts is a match of whole words.
+     */
+    private static boolean containsPhrase(byte[] words, byte[] phrase) {
+        // Phrases have at least two words, so at least two bytes
+        byte first = phrase[0];
+        long firstPattern = (first & 0xffL) * LOW_BITS;
+        long secondPattern = (phrase[1] & 0xffL) * LOW_BITS;
+        int last = words.length - phrase.length;
+        int i = 0;
+        while (i <= last) {
+            if (i + 1 + Long.BYTES <= words.length) {
+                // Skip eight positions at a time to the next one where the phrase's first
+                // two bytes occur
+                long starts = zeroBytes((long) LONGS.get(words, i) ^ firstPattern)
+                        & zeroBytes((long) LONGS.get(words, i + 1) ^ secondPattern);
+                if (starts == 0) {
+                    i += Long.BYTES;
+                    continue;
+                }
+                i += Long.numberOfTrailingZeros(starts) >>> 3;
+                if (i > last) {
+                    break;
+                }
+            }
+            if (words[i] == first && (i == 0 || words[i - 1] >= 0)
+                    && Arrays.equals(words, i + 1, i + phrase.length, phrase, 1, phrase.length)) {
+                return true;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    /**
+     * The high bit of each byte of {@code x} that is zero, and no other bits.
+     */
+    private static long zeroBytes(long x) {
+        return ~(((x & ~HIGH_BITS) + ~HIGH_BITS) | x | ~HIGH_BITS);
+    }
+
+    /**
+     * The entries of documents, newest first; caller holds the lock.
+     */
+    private List<TranscriptionIndex.Entry> newestFirst(long[] ids, int count) {
+        // Sort primitive keys rather than entries, as result sets can be large: seconds
+        // before the latest representable time (33 bits), then document id (30 bits)
+        long latest = (1L << 33) - 1;
+        for (int i = 0; i < count; i++) {
+            int id = (int) ids[i];
+            long seconds = Math.clamp(documents[id].entry().modified() / 1000, 0, latest);
+            ids[i] = ((latest - seconds) << 30) | id;
+        }
+        Arrays.sort(ids, 0, count);
+        TranscriptionIndex.Entry[] entries = new TranscriptionIndex.Entry[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = documents[(int) (ids[i] & ((1 << 30) - 1))].entry();
+        }
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    private static boolean matches(Document document, SearchQuery query) {
+        return (query.patient() == null || document.patient().contains(query.patient()))
+                && (query.fromDate() == 0 || document.date() >= query.fromDate())
+                && (query.toDate() == 0 || document.date() <= query.toDate());
+    }
+
+    /**
+     * Whether a document is in every candidate list but the one it came from.
+     */
+    private static boolean inAll(int id, List<int[]> lists, List<Integer> sizes, int skip) {
+        for (int i = 0; i < lists.size(); i++) {
+            if (i != skip && Arrays.binarySearch(lists.get(i), 0, sizes.get(i), id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The date a transcription was created, as yyyyMMdd.
+     */
+    private static int date(TranscriptionIndex.Entry entry) {
+        LocalDate date = entry.createdDate();
+        return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    private Path sibling(String suffix) {
+        return indexFile.resolveSibling(indexFile.getFileName() + suffix);
+    }
+
+    /**
+     * Read the saved index into this (empty) index.
+     *
+     * @throws IOException If it cannot be read or is corrupt
+     */
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readByte() != FORMAT_VERSION) {
+                throw new IOException("Unknown search index format");
+            }
+            int vocabulary = in.readInt();
+            if (vocabulary < 0) {
+                throw new IOException("Corrupt search index");
+            }
+            synchronized (this) {
+                for (int id = 0; id < vocabulary; id++) {
+                    String word = in.readUTF();
+                    if (!word.isEmpty()) {
+                        addWord(id, word);
+                    }
+                }
+                ensureWordCapacity(vocabulary);
+                wordCount = vocabulary;
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Path file = TranscriptionIndex.resolve(directory, in.readUTF());
+                    long modified = in.readLong();
+                    long size = in.readLong();
+                    byte[] encoded = new byte[in.readInt()];
+                    in.readFully(encoded);
+                    if (!validWords(encoded)) {
+                        throw new IOException("Corrupt search index");
+                    }
+                    addDocument(TranscriptionIndex.Entry.of(file, modified, size), encoded);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether encoded word ids are well formed and in the vocabulary; caller holds the lock.
+     */
+    private boolean validWords(byte[] encoded) {
+        int i = 0;
+        while (i < encoded.length) {
+            long word = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (i == encoded.length || shift > 28) {
+                    return false;
+                }
+                b = encoded[i++];
+                word |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (word >= wordCount || words[(int) word] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the index to a new file, swap it in, and securely delete the previous one.
+     */
+    private void save() {
+        String[] vocabulary;
+        Document[] saved;
+        synchronized (this) {
+            vocabulary = Arrays.copyOf(words, wordCount);
+            saved = Arrays.copyOf(documents, documentCount);
+        }
+        // Renumber the words still used, so dropped ones leave no gaps in the saved ids
+        int[] savedIds = new int[vocabulary.length];
+        int savedWords = 0;
+        for (int id = 0; id < vocabulary.length; id++) {
+            savedIds[id] = vocabulary[id] != null ? savedWords++ : -1;
+        }
+        boolean renumber = savedWords < vocabulary.length;
+        Path temp = sibling(".tmp");
+        Path previous = sibling(".old");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.write(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeInt(savedWords);
+                for (String word : vocabulary) {
+                    if (word != null) {
+                        out.writeUTF(word);
+                    }
+                }
+                int count = 0;
+                for (Document document : saved) {
+                    count += document != null ? 1 : 0;
+                }
+                out.writeInt(count);
+                for (Document document : saved) {
+                    if (document != null) {
+                        out.writeUTF(TranscriptionIndex.relativePath(directory,
+                                document.entry().path().toAbsolutePath()));
+                        out.writeLong(document.entry().modified());
+                        out.writeLong(document.entry().size());
+                        byte[] encoded = renumber ? renumber(document.words(), savedIds) : document.words();
+                        out.writeInt(encoded.length);
+                        out.write(encoded);
+                    }
+                }
+            }
+            // Moving over the old file would leave its contents on disk
+            boolean replacing = Files.exists(indexFile);
+            if (replacing) {
+                Files.move(indexFile, previous, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, indexFile);
+            if (replacing) {
+                FileManager.secureDelete(previous, "");
+            }
+            unsavedChanges = 0;
+            purge = false;
+            purgeDue = false;
+        } catch (IOException e) {
+            System.err.println("Failed to save search index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Re-encode word ids through a mapping from in-memory to saved ids.
+     */
+    private static byte[] renumber(byte[] encoded, int[] savedIds) {
+        VarIntWriter renumbered = new VarIntWriter(encoded.length);
+        for (int i = 0; i < encoded.length; ) {
+            int word = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = encoded[i++];
+                word |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            renumbered.write(savedIds[word]);
+        }
+        return renumbered.toByteArray();
+    }
+
+    /**
+     * Growable buffer of unsigned varints.
+     */
+    private static final class VarIntWriter {
+        private byte[] bytes;
+        private int length;
+
+        VarIntWriter(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        void write(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.transcriber.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parsed full-text search over transcriptions. All parts must match.
+ * <p>
+ * Syntax: plain words ({@code metformin}), quoted phrases ({@code "twice daily"}),
+ * prefixes ({@code metf*}), and filters {@code patient:NAME} (part of the patient
+ * name in the file name), {@code from:DATE} and {@code to:DATE} (the date the
+ * transcription was created, {@code yyyy-MM-dd}, inclusive). Filter values may be
+ * quoted. Matching ignores case and punctuation.
+ *
+ * @param phrases Word sequences that must occur; a single word is a one-word phrase
+ * @param prefixes Word prefixes, each of which must start some word
+ * @param patient Lower-case patient name filter with words joined by '_', or null
+ * @param fromDate First date to include as yyyyMMdd, or 0
+ * @param toDate Last date to include as yyyyMMdd, or 0
+ */
+public record SearchQuery(List<List<String>> phrases, List<String> prefixes, String patient,
+                          int fromDate, int toDate) {
+
+    /**
+     * Parse a query.
+     *
+     * @throws IllegalArgumentException If a filter value is not valid
+     */
+    public static SearchQuery parse(String text) {
+        List<List<String>> phrases = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        String patient = null;
+        int fromDate = 0;
+        int toDate = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            // A filter name, or a word or phrase
+            String field = null;
+            int colon = i;
+            while (colon < text.length() && Character.isLetter(text.charAt(colon))) {
+                colon++;
+            }
+            if (colon > i && colon < text.length() && text.charAt(colon) == ':') {
+                field = text.substring(i, colon).toLowerCase();
+                i = colon + 1;
+            }
+            boolean quoted = i < text.length() && text.charAt(i) == '"';
+            int end;
+            String value;
+            if (quoted) {
+                end = text.indexOf('"', i + 1);
+                value = text.substring(i + 1, end < 0 ? text.length() : end);
+                i = end < 0 ? text.length() : end + 1;
+            } else {
+                end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                value = text.substring(i, end);
+                i = end;
+            }
+
+            if (field == null || (!field.equals("patient") && !field.equals("from") && !field.equals("to"))) {
+                String word = field != null ? field + ":" + value : value;
+                if (!quoted && word.endsWith("*")) {
+                    List<String> tokens = SearchIndex.tokens(word);
+                    if (tokens.isEmpty()) {
+                        continue;
+                    }
+                    // "b.i*" is the phrase "b" followed by a word starting with "i"
+                    String prefix = tokens.remove(tokens.size() - 1);
+                    if (!tokens.isEmpty()) {
+                        phrases.add(tokens);
+                    }
+                    prefixes.add(prefix);
+                } else {
+                    List<String> tokens = SearchIndex.tokens(word);
+                    if (!tokens.isEmpty()) {
+                        phrases.add(tokens);
+                    }
+                }
+            } else if (field.equals("patient")) {
+                List<String> tokens = SearchIndex.tokens(value);
+                patient = tokens.isEmpty() ? null : String.join("_", tokens);
+            } else if (field.equals("from")) {
+                fromDate = parseDate(value);
+            } else {
+                toDate = parseDate(value);
+            }
+        }
+        return new SearchQuery(phrases, prefixes, patient, fromDate, toDate);
+    }
+
+    /**
+     * Whether the query has nothing to match or filter on.
+     */
+    public boolean isEmpty() {
+        return phrases.isEmpty() && prefixes.isEmpty() && patient == null && fromDate == 0 && toDate == 0;
+    }
+
+    /**
+     * Parse {@code yyyy-MM-dd} (or {@code yyyyMMdd}) to yyyyMMdd.
+     */
+    private static int parseDate(String value) {
+        String digits = value.replace("-", "");
+        if (digits.length() != 8 || !digits.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("Invalid date \"" + value + "\", expected yyyy-MM-dd");
+        }
+        return Integer.parseInt(digits);
+    }
+}
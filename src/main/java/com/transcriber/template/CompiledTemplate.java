@@ -0,0 +1,133 @@
+package com.transcriber.template;
+
+import com.transcriber.text.TextSource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template parsed into alternating literal text and placeholder names, so it can
+ * be rendered without re-reading or re-scanning the file.
+ * <p>
+ * Placeholders are {@code {{NAME}}} with optional whitespace inside the braces and
+ * a name of upper-case letters, digits and underscores; anything else is literal.
+ */
+final class CompiledTemplate {
+
+    // literals[i] precedes keys[i]; the last literal follows the last placeholder
+    private final String[] literals;
+    private final String[] keys;
+    private final int literalLength;
+    // File version this was compiled from
+    private final FileTime modified;
+    private final long size;
+
+    private CompiledTemplate(String[] literals, String[] keys, FileTime modified, long size) {
+        this.literals = literals;
+        this.keys = keys;
+        this.modified = modified;
+        this.size = size;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parse template text.
+     *
+     * @param modified Modification time of the file it was read from
+     * @param size Size of the file it was read from
+     */
+    static CompiledTemplate parse(String raw, FileTime modified, long size) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int copied = 0;
+        int from = 0;
+        int open;
+        while ((open = raw.indexOf("{{", from)) >= 0) {
+            int i = skipWhitespace(raw, open + 2);
+            int nameStart = i;
+            while (i < raw.length() && isNameChar(raw.charAt(i))) {
+                i++;
+            }
+            int nameEnd = i;
+            i = skipWhitespace(raw, i);
+            if (nameEnd > nameStart && raw.startsWith("}}", i)) {
+                literals.add(raw.substring(copied, open));
+                keys.add(raw.substring(nameStart, nameEnd));
+                copied = i + 2;
+                from = copied;
+            } else {
+                from = open + 1;
+            }
+        }
+        literals.add(raw.substring(copied));
+        return new CompiledTemplate(literals.toArray(new String[0]), keys.toArray(new String[0]), modified, size);
+    }
+
+    /**
+     * Whether this was compiled from the given version of the file.
+     */
+    boolean isCurrent(FileTime modified, long size) {
+        return this.modified.equals(modified) && this.size == size;
+    }
+
+    /**
+     * Render with the given placeholder values (missing ones are empty).
+     */
+    String render(Map<String, String> values) {
+        String[] resolved = new String[keys.length];
+        int length = literalLength;
+        for (int i = 0; i < keys.length; i++) {
+            resolved[i] = values.getOrDefault(keys[i], "");
+            length += resolved[i].length();
+        }
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < keys.length; i++) {
+            result.append(literals[i]).append(resolved[i]);
+        }
+        return result.append(literals[keys.length]).toString();
+    }
+
+    /**
+     * Render to a writer, with placeholder {@code streamedKey} written by a source.
+     */
+    void render(Map<String, String> values, String streamedKey, TextSource streamed, Writer out)
+            throws IOException {
+        for (int i = 0; i < keys.length; i++) {
+            out.write(literals[i]);
+            if (keys[i].equals(streamedKey)) {
+                if (streamed != null) {
+                    streamed.writeTo(out);
+                }
+            } else {
+                out.write(values.getOrDefault(keys[i], ""));
+            }
+        }
+        out.write(literals[keys.length]);
+    }
+
+    private static int skipWhitespace(String raw, int i) {
+        while (i < raw.length() && isWhitespace(raw.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Whitespace as matched by {@code \s}.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,127 @@
+package com.transcriber.template;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures {@link TemplateManager#applyTemplate(Path, String, Map)} against the
+ * previous renderer, which re-read the template and ran a regex over it on every call,
+ * with the bundled default template and transcripts of several lengths.
+ * <p>
+ * Run after {@code mvn compile} with
+ * {@code java -cp target/classes com.transcriber.template.TemplateBenchmark [characters...]}
+ * (default 2000 200000). Each renderer is warmed up, then timed over enough calls to
+ * take about a second; the outputs are checked to be identical.
+ */
+public class TemplateBenchmark {
+
+    // The previous renderer's placeholder syntax
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{\\s*([A-Z0-9_]+)\\s*\\}\\}");
+    private static final long TARGET_NANOS = 1_000_000_000L;
+
+    private TemplateBenchmark() {
+        // Command-line tool - prevent instantiation
+    }
+
+    private interface Renderer {
+        String render(Path template, String transcript, Map<String, String> context) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] lengths = {2_000, 200_000};
+        if (args.length > 0) {
+            lengths = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                lengths[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Path template = Files.createTempFile("template-benchmark", ".txt");
+        try {
+            try (InputStream in = TemplateBenchmark.class.getClassLoader()
+                    .getResourceAsStream("templates/default_template.txt")) {
+                if (in == null) {
+                    throw new IOException("Bundled default template not found");
+                }
+                Files.write(template, in.readAllBytes());
+            }
+            Map<String, String> context = Map.of("PATIENT", "Jane Doe", "DOB", "1970-01-01");
+            System.out.println("transcript    regex us   compiled us   speedup");
+            for (int length : lengths) {
+                String transcript = transcript(length);
+                if (!regexRender(template, transcript, context)
+                        .equals(TemplateManager.applyTemplate(template, transcript, context))) {
+                    throw new IllegalStateException("Renderers disagree at " + length + " characters");
+                }
+                double regex = microsPerCall(TemplateBenchmark::regexRender, template, transcript, context);
+                double compiled = microsPerCall(TemplateManager::applyTemplate, template, transcript, context);
+                System.out.printf("%10d  %10.2f  %12.2f  %7.1fx%n", length, regex, compiled, regex / compiled);
+            }
+        } finally {
+            Files.deleteIfExists(template);
+        }
+    }
+
+    /**
+     * Average time of one call, after a warm-up of the same length.
+     */
+    private static double microsPerCall(Renderer renderer, Path template, String transcript,
+            Map<String, String> context) throws IOException {
+        int calls = 1;
+        long elapsed = 0;
+        // Double the calls until a run takes long enough; the first runs are the warm-up
+        while (elapsed < TARGET_NANOS) {
+            calls *= 2;
+            long start = System.nanoTime();
+            long length = 0;
+            for (int i = 0; i < calls; i++) {
+                length += renderer.render(template, transcript, context).length();
+            }
+            elapsed = System.nanoTime() - start;
+            if (length == 0) {
+                throw new IllegalStateException("Empty render");
+            }
+        }
+        return elapsed / 1e3 / calls;
+    }
+
+    /**
+     * The renderer replaced by {@link CompiledTemplate}.
+     */
+    private static String regexRender(Path templatePath, String transcript, Map<String, String> context)
+            throws IOException {
+        String raw = Files.readString(templatePath);
+        Map<String, String> replacements = new HashMap<>(context != null ? context : Map.of());
+        replacements.put("TRANSCRIPT", transcript != null ? transcript : "");
+
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(raw);
+        StringBuilder result = new StringBuilder(raw.length() + replacements.get("TRANSCRIPT").length());
+
+        while (matcher.find()) {
+            String key = matcher.group(1);
+            String replacement = replacements.getOrDefault(key, "");
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+
+        return result.toString();
+    }
+
+    /**
+     * Dictation-like text of a given length, with $ and \ so replacement quoting is exercised.
+     */
+    private static String transcript(int length) {
+        String sentence = "Patient reports 3/10 pain, copay $20, path C:\\notes; no acute distress. ";
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(sentence);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+}
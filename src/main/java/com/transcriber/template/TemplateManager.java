@@ -1,22 +1,26 @@
 package com.transcriber.template;
 
 import com.transcriber.config.Config;
+import com.transcriber.text.TextSource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 /**
  * Utilities for loading and applying transcription templates.
  */
 public class TemplateManager {
     
-    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{\\s*([A-Z0-9_]+)\\s*\\}\\}");
+    // Parsed templates by path, replaced when the file's modification time or size changes
+    private static final Map<Path, CompiledTemplate> COMPILED = new ConcurrentHashMap<>();
     
     /**
      * Load all template files from the templates directory.
@@ -30,10 +34,10 @@ public class TemplateManager {
             return templates;
         }
         
-        try {
-            Files.list(Config.TEMPLATES_DIR)
+        try (Stream<Path> files = Files.list(Config.TEMPLATES_DIR)) {
+            files
                 .filter(Files::isRegularFile)
-                .filter(p -> p.toString().endsWith(".txt"))
+                .filter(TemplateManager::isTemplateFile)
                 .forEach(path -> {
                     String name = getFileNameWithoutExtension(path);
                     templates.put(name, path);
@@ -56,21 +60,66 @@ public class TemplateManager {
      */
     public static String applyTemplate(Path templatePath, String transcript, Map<String, String> context) 
             throws IOException {
-        String raw = Files.readString(templatePath);
         Map<String, String> replacements = new HashMap<>(context != null ? context : Map.of());
         replacements.put("TRANSCRIPT", transcript != null ? transcript : "");
-        
-        Matcher matcher = PLACEHOLDER_PATTERN.matcher(raw);
-        StringBuffer result = new StringBuffer();
-        
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String replacement = replacements.getOrDefault(key, "");
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        return compiled(templatePath).render(replacements);
+    }
+    
+    /**
+     * Apply a template, streaming the result to a writer. The transcript is written
+     * straight into the output at each {{TRANSCRIPT}} placeholder, e.g. from a
+     * streaming clean of a large transcript, so it is never held in memory as a whole.
+     * 
+     * @param templatePath Path to the template file
+     * @param transcript Writes the transcription text at {{TRANSCRIPT}} (called once per placeholder)
+     * @param context Additional context values (e.g., PATIENT, DOB)
+     * @param out Receives the processed template; it is not closed
+     * @throws IOException If the template file cannot be read or writing fails
+     */
+    public static void applyTemplate(Path templatePath, TextSource transcript, Map<String, String> context, 
+            Writer out) throws IOException {
+        compiled(templatePath).render(context != null ? context : Map.of(), "TRANSCRIPT", transcript, out);
+    }
+    
+    /**
+     * Get a template parsed into segments, reading and parsing the file only if it
+     * changed since it was last used.
+     */
+    private static CompiledTemplate compiled(Path templatePath) throws IOException {
+        // Check the file before reading it, so a change made while reading is seen next time
+        BasicFileAttributes attributes = Files.readAttributes(templatePath, BasicFileAttributes.class);
+        CompiledTemplate template = COMPILED.get(templatePath);
+        if (template == null || !template.isCurrent(attributes.lastModifiedTime(), attributes.size())) {
+            template = CompiledTemplate.parse(Files.readString(templatePath), 
+                    attributes.lastModifiedTime(), attributes.size());
+            COMPILED.put(templatePath, template);
         }
-        matcher.appendTail(result);
-        
-        return result.toString();
+        return template;
+    }
+
+    /**
+     * Parse a template ahead of its first use, e.g. after it changed on disk.
+     */
+    static void preload(Path templatePath) {
+        try {
+            compiled(templatePath);
+        } catch (IOException e) {
+            System.err.println("Failed to load template " + templatePath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the parsed form of a template that was deleted.
+     */
+    static void evict(Path templatePath) {
+        COMPILED.remove(templatePath);
+    }
+
+    /**
+     * Whether a path names a template file.
+     */
+    static boolean isTemplateFile(Path path) {
+        return path.toString().endsWith(".txt");
     }
 
     /**
@@ -98,7 +147,7 @@ public class TemplateManager {
     /**
      * Get filename without extension.
      */
-    private static String getFileNameWithoutExtension(Path path) {
+    static String getFileNameWithoutExtension(Path path) {
         String fileName = path.getFileName().toString();
         int lastDot = fileName.lastIndexOf('.');
         return lastDot > 0 ? fileName.substring(0, lastDot) : fileName;
@@ -0,0 +1,168 @@
+package com.transcriber.template;
+
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live view of the templates directory.
+ * <p>
+ * A background thread watches the directory and, once a burst of file events has
+ * been quiet for {@link Config#TEMPLATE_RELOAD_DEBOUNCE_MS}, re-parses only the
+ * templates that changed and publishes a new immutable snapshot of the templates by
+ * name. Readers take the current snapshot without locking.
+ */
+public class TemplateRegistry implements AutoCloseable {
+
+    /**
+     * Notified on the watcher thread after a new snapshot is published.
+     */
+    public interface Listener {
+        void templatesChanged(Map<String, Path> templates);
+    }
+
+    private final Path directory;
+    private final Listener listener;
+    private volatile Map<String, Path> snapshot;
+    private WatchService watcher;
+
+    /**
+     * Load the templates in {@link Config#TEMPLATES_DIR} and start watching it.
+     *
+     * @param listener Receiver of snapshot updates, or null
+     */
+    public TemplateRegistry(Listener listener) {
+        this.directory = Config.TEMPLATES_DIR;
+        this.listener = listener;
+        this.snapshot = Collections.unmodifiableMap(new TreeMap<>(TemplateManager.loadTemplates()));
+        for (Path template : snapshot.values()) {
+            TemplateManager.preload(template);
+        }
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            Thread thread = new Thread(this::watch, "TemplateWatcher");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException e) {
+            System.err.println("Template changes will not be picked up until restart: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The current templates by name (file name without extension), sorted by name.
+     * The map is immutable; later changes publish a new one.
+     */
+    public Map<String, Path> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Stop watching the directory.
+     */
+    @Override
+    public void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                System.err.println("Failed to stop template watcher: " + e.getMessage());
+            }
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Set<Path> changed = new HashSet<>();
+                boolean overflow = false;
+                // Collect events until the directory has been quiet for the debounce period
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            changed.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        System.err.println("Templates directory is no longer watched: " + directory);
+                        return;
+                    }
+                    key = watcher.poll(Config.TEMPLATE_RELOAD_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                }
+                if (overflow) {
+                    reload();
+                } else {
+                    update(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Publish a snapshot with the changed template files re-parsed, added or removed.
+     */
+    private void update(Set<Path> changed) {
+        Map<String, Path> templates = new TreeMap<>(snapshot);
+        boolean modified = false;
+        for (Path path : changed) {
+            if (!TemplateManager.isTemplateFile(path)) {
+                continue;
+            }
+            String name = TemplateManager.getFileNameWithoutExtension(path);
+            if (Files.isRegularFile(path)) {
+                TemplateManager.preload(path);
+                templates.put(name, path);
+            } else {
+                TemplateManager.evict(path);
+                templates.remove(name);
+            }
+            modified = true;
+        }
+        if (modified) {
+            publish(templates);
+        }
+    }
+
+    /**
+     * Publish a snapshot from a full scan, after events were lost.
+     */
+    private void reload() {
+        Map<String, Path> templates = new TreeMap<>(TemplateManager.loadTemplates());
+        for (Path path : snapshot.values()) {
+            if (!templates.containsValue(path)) {
+                TemplateManager.evict(path);
+            }
+        }
+        for (Path path : templates.values()) {
+            TemplateManager.preload(path);
+        }
+        publish(templates);
+    }
+
+    private void publish(Map<String, Path> templates) {
+        snapshot = Collections.unmodifiableMap(templates);
+        if (listener != null) {
+            listener.templatesChanged(snapshot);
+        }
+    }
+}
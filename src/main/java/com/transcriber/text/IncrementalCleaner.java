@@ -0,0 +1,375 @@
+package com.transcriber.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cleans only the paragraphs of a document edited since it was last cleaned, then
+ * applies a normalization dictionary to them.
+ * <p>
+ * Edits are reported as character ranges (e.g. from a text formatter) and kept as
+ * a short list of dirty ranges. Cleaning re-cleans just the paragraphs they touch,
+ * plus any adjacent blank lines so blank runs are still collapsed, and writes back
+ * only the characters that changed. The edited paragraphs are located from the
+ * nearest known paragraph start (the start or end of the document, or the first
+ * paragraph cleaned last time, tracked through later edits), and the ends of the
+ * document are only trimmed when a cleaned block reaches them, so cleaning time
+ * follows the edited text rather than the document. The rest of the document (with
+ * its caret and undo history) is left alone.
+ */
+public class IncrementalCleaner {
+
+    /**
+     * A document edited in place, such as the editor's text area.
+     */
+    public interface Document {
+        /**
+         * The document's lines, without line breaks.
+         */
+        List<? extends CharSequence> paragraphs();
+
+        /**
+         * The number of characters in the document, line breaks included.
+         */
+        int length();
+
+        /**
+         * Replace a character range of the document.
+         */
+        void replace(int start, int end, String text);
+    }
+
+    private final TranscriptionCleaner cleaner;
+    private final NormalizationDictionary dictionary;
+    // Disjoint, ascending [start, end) character ranges edited since the last clean
+    private final List<int[]> dirty = new ArrayList<>();
+    private boolean applying;
+    // A known paragraph start: paragraph index and character offset
+    private int anchorParagraph;
+    private int anchorOffset;
+
+    /**
+     * @param cleaner Cleaner applied to edited paragraphs
+     * @param dictionary Normalization applied to them after cleaning, or null
+     */
+    public IncrementalCleaner(TranscriptionCleaner cleaner, NormalizationDictionary dictionary) {
+        this.cleaner = cleaner;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Record an edit: characters {@code start} to {@code end} of the document, the
+     * {@code removed} text, were replaced by the {@code inserted} text. Edits made by
+     * {@link #clean} itself are ignored.
+     */
+    public void edited(int start, int end, CharSequence removed, CharSequence inserted) {
+        if (applying || start == end && inserted.length() == 0) {
+            // Nothing changed, e.g. only the selection moved
+            return;
+        }
+        int insertedLength = inserted.length();
+        int delta = insertedLength - (end - start);
+        if (end < anchorOffset) {
+            // Before the anchor's line break: the anchor moves with the text
+            anchorOffset += delta;
+            anchorParagraph += lineBreaks(inserted) - lineBreaks(removed);
+        } else if (start < anchorOffset) {
+            anchorParagraph = 0;
+            anchorOffset = 0;
+        }
+        int mergedStart = start;
+        int mergedEnd = start + insertedLength;
+        int insertAt = 0;
+        for (int i = 0; i < dirty.size(); ) {
+            int[] range = dirty.get(i);
+            if (range[1] < start) {
+                insertAt = ++i;
+            } else if (range[0] > end) {
+                range[0] += delta;
+                range[1] += delta;
+                i++;
+            } else {
+                // Overlaps or touches the edit: absorb it
+                mergedStart = Math.min(mergedStart, range[0]);
+                mergedEnd = Math.max(mergedEnd, range[1] > end ? range[1] + delta : start + insertedLength);
+                dirty.remove(i);
+            }
+        }
+        dirty.add(insertAt, new int[] {mergedStart, mergedEnd});
+    }
+
+    /**
+     * Whether the document has been edited since it was last cleaned.
+     */
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Forget all edits, e.g. after the document was cleaned as a whole.
+     */
+    public void reset() {
+        dirty.clear();
+        anchorParagraph = 0;
+        anchorOffset = 0;
+    }
+
+    /**
+     * Clean the edited paragraphs of a document in place.
+     *
+     * @param document The document whose edits were reported to {@link #edited}
+     * @return The number of paragraphs cleaned
+     */
+    public int clean(Document document) {
+        if (dirty.isEmpty()) {
+            return 0;
+        }
+        List<? extends CharSequence> paragraphs = document.paragraphs();
+        int lastParagraph = paragraphs.size() - 1;
+        List<int[]> blocks = dirtyParagraphs(paragraphs, document.length());
+        dirty.clear();
+        // Cleaning leaves the text before the first block where it is
+        anchorParagraph = blocks.get(0)[0];
+        anchorOffset = blocks.get(0)[2];
+        if (!cleaner.hasFillers() && (dictionary == null || dictionary.size() == 0)) {
+            return 0;
+        }
+        // The ends only need trimming if a block reaches them, or only whitespace lies between
+        boolean trimStart = true;
+        for (int i = 0; trimStart && i < blocks.get(0)[0]; i++) {
+            trimStart = isBlank(paragraphs.get(i));
+        }
+        boolean trimEnd = true;
+        for (int i = lastParagraph; trimEnd && i > blocks.get(blocks.size() - 1)[1]; i--) {
+            trimEnd = isBlank(paragraphs.get(i));
+        }
+
+        int cleaned = 0;
+        boolean removedText = false;
+        applying = true;
+        try {
+            // Last block first, so the offsets of earlier blocks stay valid
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                int[] block = blocks.get(b);
+                cleaned += block[1] - block[0] + 1;
+                removedText |= cleanBlock(document, document.paragraphs(), block[0], block[1], block[2]);
+            }
+            if (trimStart || trimEnd) {
+                if (trimEnds(document, trimStart, trimEnd, removedText)) {
+                    anchorParagraph = 0;
+                    anchorOffset = 0;
+                }
+            }
+        } finally {
+            applying = false;
+        }
+        return cleaned;
+    }
+
+    /**
+     * Map the dirty character ranges to blocks of paragraphs: first and last
+     * paragraph index and the offset of the first, ascending and non-adjacent.
+     */
+    private List<int[]> dirtyParagraphs(List<? extends CharSequence> paragraphs, int length) {
+        List<int[]> blocks = new ArrayList<>();
+        int count = paragraphs.size();
+        // Start from the known paragraph start nearest the first edit
+        int target = dirty.get(0)[0];
+        int[] cursor = {0, 0};
+        int lastStart = length - paragraphs.get(count - 1).length();
+        if (anchorParagraph < count && anchorOffset <= length && Math.abs(anchorOffset - target) < target) {
+            cursor = new int[] {anchorParagraph, anchorOffset};
+        }
+        if (Math.abs(lastStart - target) < Math.abs(cursor[1] - target)) {
+            cursor = new int[] {count - 1, lastStart};
+        }
+        for (int[] range : dirty) {
+            seek(paragraphs, cursor, range[0]);
+            int first = cursor[0];
+            int firstOffset = cursor[1];
+            // The paragraph holding the text after the edit changes too (e.g. a split line)
+            seek(paragraphs, cursor, range[1]);
+            int paragraph = cursor[0];
+            // Blank lines next to the edit may now form a longer run to collapse
+            while (first > 0 && paragraphs.get(first - 1).length() == 0) {
+                first--;
+                firstOffset--;
+            }
+            int end = paragraph;
+            while (end < count - 1 && paragraphs.get(end + 1).length() == 0) {
+                end++;
+            }
+            int[] previous = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+            if (previous != null && first <= previous[1] + 1) {
+                previous[1] = Math.max(previous[1], end);
+            } else {
+                blocks.add(new int[] {first, end, firstOffset});
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Move a cursor (paragraph index and the offset of its start) to the paragraph
+     * holding a character offset. Paragraph i spans [offset, offset + length], its
+     * line break included.
+     */
+    private static void seek(List<? extends CharSequence> paragraphs, int[] cursor, int target) {
+        while (cursor[0] < paragraphs.size() - 1 && cursor[1] + paragraphs.get(cursor[0]).length() < target) {
+            cursor[1] += paragraphs.get(cursor[0]++).length() + 1;
+        }
+        while (cursor[0] > 0 && cursor[1] > target) {
+            cursor[1] -= paragraphs.get(--cursor[0]).length() + 1;
+        }
+    }
+
+    private static boolean isBlank(CharSequence paragraph) {
+        for (int i = 0; i < paragraph.length(); i++) {
+            if (paragraph.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lineBreaks(CharSequence text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Clean paragraphs {@code first} to {@code last}, keeping at most one blank line
+     * in a row, and replace the part of the block that changed.
+     *
+     * @return Whether the block had any non-blank text
+     */
+    private boolean cleanBlock(Document document, List<? extends CharSequence> paragraphs,
+                            int first, int last, int offset) {
+        StringBuilder original = new StringBuilder();
+        StringBuilder result = new StringBuilder();
+        int blankRun = 0;
+        boolean hasText = false;
+        for (int i = first; i <= last; i++) {
+            String paragraph = paragraphs.get(i).toString();
+            hasText |= !paragraph.isBlank();
+            if (i > first) {
+                original.append('\n');
+            }
+            original.append(paragraph);
+            String cleaned = cleaner.cleanParagraph(paragraph);
+            if (dictionary != null) {
+                cleaned = dictionary.normalize(cleaned);
+            }
+            blankRun = cleaned.isEmpty() ? blankRun + 1 : 0;
+            if (blankRun > 1) {
+                continue;
+            }
+            if (i > first) {
+                result.append('\n');
+            }
+            result.append(cleaned);
+        }
+        replaceChanged(document, offset, original, result);
+        return hasText;
+    }
+
+    /**
+     * Trim whitespace and blank lines from the start and/or end of the document, as
+     * a full clean would; this only looks at the whitespace being trimmed. A document
+     * left with only whitespace is emptied, unless it was blank to begin with.
+     *
+     * @return Whether text was removed from the start
+     */
+    private static boolean trimEnds(Document document, boolean trimStart, boolean trimEnd, boolean removedText) {
+        List<? extends CharSequence> paragraphs = document.paragraphs();
+        int length = document.length();
+        if (!trimEnd) {
+            return trimStart(document, length, removedText);
+        }
+        int trailing = 0;
+        for (int i = paragraphs.size() - 1; i >= 0; i--) {
+            CharSequence paragraph = paragraphs.get(i);
+            int j = paragraph.length();
+            while (j > 0 && paragraph.charAt(j - 1) <= ' ') {
+                j--;
+            }
+            if (j > 0) {
+                trailing += paragraph.length() - j;
+                break;
+            }
+            trailing += paragraph.length() + (i > 0 ? 1 : 0);
+        }
+        if (trailing >= length) {
+            // Only whitespace is left
+            if (removedText && length > 0) {
+                document.replace(0, length, "");
+                return true;
+            }
+            return false;
+        }
+        if (trailing > 0) {
+            document.replace(length - trailing, length, "");
+        }
+        return trimStart && trimStart(document, length - trailing, removedText);
+    }
+
+    /**
+     * Trim whitespace and blank lines from the start of the document.
+     *
+     * @return Whether text was removed
+     */
+    private static boolean trimStart(Document document, int length, boolean removedText) {
+        int leading = 0;
+        for (CharSequence paragraph : document.paragraphs()) {
+            int j = 0;
+            while (j < paragraph.length() && paragraph.charAt(j) <= ' ') {
+                j++;
+            }
+            leading += j;
+            if (j < paragraph.length()) {
+                break;
+            }
+            leading++;
+        }
+        if (leading >= length) {
+            // Only whitespace is left
+            if (removedText && length > 0) {
+                document.replace(0, length, "");
+                return true;
+            }
+            return false;
+        }
+        if (leading > 0) {
+            document.replace(0, leading, "");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replace only the characters between the common prefix and suffix of the old
+     * and new text of a block.
+     */
+    private static void replaceChanged(Document document, int offset, CharSequence original, CharSequence result) {
+        int prefix = 0;
+        int limit = Math.min(original.length(), result.length());
+        while (prefix < limit && original.charAt(prefix) == result.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == original.length() && prefix == result.length()) {
+            return;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && original.charAt(original.length() - 1 - suffix) == result.charAt(result.length() - 1 - suffix)) {
+            suffix++;
+        }
+        document.replace(offset + prefix, offset + original.length() - suffix,
+                result.subSequence(prefix, result.length() - suffix).toString());
+    }
+}
@@ -0,0 +1,618 @@
+package com.transcriber.text;
+
+import com.transcriber.config.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Phrase replacements applied to transcripts after cleaning, such as "b i d" → "BID"
+ * or "milligrams" → "mg".
+ * <p>
+ * Entries come from the bundled medical dictionary followed by the {@code *.txt}
+ * files in {@link Config#NORMALIZATION_DIR}, one {@code phrase => replacement} per
+ * line ({@code #} starts a comment; later entries override earlier ones). They are
+ * compiled into an immutable word trie held in flat arrays: words are interned in
+ * an open-addressing table and each node's edges are a slice of one array sorted
+ * by word id. The compiled arrays are cached in {@link Config#NORMALIZATION_CACHE_FILE}
+ * and read back in bulk on the next start while the dictionary files are unchanged.
+ * <p>
+ * Phrases match whole words case-insensitively, leftmost and longest first, in one
+ * pass over the text. Punctuation before the first or after the last word of a
+ * match is kept; a phrase does not match across other punctuation or a line break.
+ * <pre>
+ * cache:  'T' 'N' 'D' version | 32-byte fingerprint of the dictionary files
+ *         | int counts × 8 | word chars | word starts | word slots | first edges
+ *         | edge words | edge targets | replacement per node | replacement chars
+ *         | replacement starts
+ * </pre>
+ */
+public final class NormalizationDictionary {
+
+    private static final byte[] MAGIC = {'T', 'N', 'D'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 32 + 8 * 4;
+    private static final String BUNDLED_DICTIONARY = "normalization/medical.txt";
+    private static final String SEPARATOR = "=>";
+
+    // Interned words: their characters back to back, and where each starts (plus the end)
+    private final char[] wordChars;
+    private final int[] wordStarts;
+    // Word id + 1 by hash of its characters (0 = empty slot)
+    private final int[] wordSlots;
+    // Node n's edges are [firstEdge[n], firstEdge[n + 1]) of edgeWords/edgeTargets
+    private final int[] firstEdge;
+    private final int[] edgeWords;
+    private final int[] edgeTargets;
+    // Replacement of the phrase ending at each node, or -1
+    private final int[] replacementAt;
+    private final char[] replacementChars;
+    private final int[] replacementStarts;
+    private final int maxWords;
+    private final int size;
+
+    private NormalizationDictionary(char[] wordChars, int[] wordStarts, int[] wordSlots, int[] firstEdge,
+                                    int[] edgeWords, int[] edgeTargets, int[] replacementAt,
+                                    char[] replacementChars, int[] replacementStarts, int maxWords) {
+        this.wordChars = wordChars;
+        this.wordStarts = wordStarts;
+        this.wordSlots = wordSlots;
+        this.firstEdge = firstEdge;
+        this.edgeWords = edgeWords;
+        this.edgeTargets = edgeTargets;
+        this.replacementAt = replacementAt;
+        this.replacementChars = replacementChars;
+        this.replacementStarts = replacementStarts;
+        this.maxWords = maxWords;
+        this.size = (int) Arrays.stream(replacementAt).filter(r -> r >= 0).count();
+    }
+
+    /**
+     * Load the bundled and user dictionaries, from the compiled cache if it is
+     * current; otherwise compile them and refresh the cache.
+     */
+    public static NormalizationDictionary load() {
+        return load(Config.NORMALIZATION_DIR, Config.NORMALIZATION_CACHE_FILE);
+    }
+
+    /**
+     * Load the bundled dictionary and the {@code *.txt} dictionaries in a directory.
+     *
+     * @param directory Directory of user dictionaries (need not exist)
+     * @param cacheFile Compiled dictionary cache
+     */
+    public static NormalizationDictionary load(Path directory, Path cacheFile) {
+        byte[] bundled = readBundled();
+        List<Path> files = dictionaryFiles(directory);
+        byte[] fingerprint = fingerprint(bundled, files);
+        if (Files.exists(cacheFile)) {
+            try {
+                NormalizationDictionary cached = read(cacheFile, fingerprint);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (IOException e) {
+                System.err.println("Ignoring normalization cache: " + e.getMessage());
+            }
+        }
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        parse(new String(bundled, StandardCharsets.UTF_8), BUNDLED_DICTIONARY, entries);
+        boolean complete = true;
+        for (Path file : files) {
+            try {
+                parse(Files.readString(file), file.getFileName().toString(), entries);
+            } catch (IOException e) {
+                System.err.println("Failed to read normalization dictionary " + file + ": " + e.getMessage());
+                complete = false;
+            }
+        }
+        NormalizationDictionary dictionary = compile(entries);
+        if (complete) {
+            try {
+                dictionary.write(cacheFile, fingerprint);
+            } catch (IOException e) {
+                System.err.println("Failed to cache normalization dictionary: " + e.getMessage());
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Compile a dictionary.
+     *
+     * @param entries Replacement by phrase; case and punctuation around the phrase's
+     *                words are ignored
+     */
+    public static NormalizationDictionary compile(Map<String, String> entries) {
+        Map<String, Integer> wordIds = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        Map<String, Integer> replacementIds = new HashMap<>();
+        List<String> replacements = new ArrayList<>();
+        // Child node by parent node << 32 | word id
+        Map<Long, Integer> edges = new HashMap<>();
+        List<Integer> nodeReplacement = new ArrayList<>();
+        nodeReplacement.add(-1);
+        int maxWords = 0;
+
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String[] phrase = phraseWords(entry.getKey());
+            if (phrase.length == 0) {
+                continue;
+            }
+            int node = 0;
+            for (String word : phrase) {
+                int id = wordIds.computeIfAbsent(word, w -> {
+                    words.add(w);
+                    return words.size() - 1;
+                });
+                long key = (long) node << 32 | id;
+                Integer child = edges.get(key);
+                if (child == null) {
+                    child = nodeReplacement.size();
+                    nodeReplacement.add(-1);
+                    edges.put(key, child);
+                }
+                node = child;
+            }
+            int replacement = replacementIds.computeIfAbsent(entry.getValue(), r -> {
+                replacements.add(r);
+                return replacements.size() - 1;
+            });
+            nodeReplacement.set(node, replacement);
+            maxWords = Math.max(maxWords, phrase.length);
+        }
+
+        int nodes = nodeReplacement.size();
+        long[] keys = edges.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int[] firstEdge = new int[nodes + 1];
+        int[] edgeWords = new int[keys.length];
+        int[] edgeTargets = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            firstEdge[(int) (keys[i] >>> 32) + 1]++;
+            edgeWords[i] = (int) keys[i];
+            edgeTargets[i] = edges.get(keys[i]);
+        }
+        for (int n = 0; n < nodes; n++) {
+            firstEdge[n + 1] += firstEdge[n];
+        }
+
+        StringBuilder wordText = new StringBuilder();
+        int[] wordStarts = new int[words.size() + 1];
+        for (int i = 0; i < words.size(); i++) {
+            wordStarts[i] = wordText.length();
+            wordText.append(words.get(i));
+        }
+        wordStarts[words.size()] = wordText.length();
+        char[] wordChars = wordText.toString().toCharArray();
+        int[] wordSlots = new int[Integer.highestOneBit(Math.max(1, words.size()) * 4)];
+        for (int id = 0; id < words.size(); id++) {
+            int slot = hash(wordChars, wordStarts[id], wordStarts[id + 1]) & (wordSlots.length - 1);
+            while (wordSlots[slot] != 0) {
+                slot = (slot + 1) & (wordSlots.length - 1);
+            }
+            wordSlots[slot] = id + 1;
+        }
+
+        StringBuilder replacementText = new StringBuilder();
+        int[] replacementStarts = new int[replacements.size() + 1];
+        for (int i = 0; i < replacements.size(); i++) {
+            replacementStarts[i] = replacementText.length();
+            replacementText.append(replacements.get(i));
+        }
+        replacementStarts[replacements.size()] = replacementText.length();
+
+        return new NormalizationDictionary(wordChars, wordStarts, wordSlots, firstEdge, edgeWords, edgeTargets,
+                nodeReplacement.stream().mapToInt(Integer::intValue).toArray(),
+                replacementText.toString().toCharArray(), replacementStarts, maxWords);
+    }
+
+    /**
+     * Number of phrases in the dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replace every dictionary phrase in a text.
+     *
+     * @param text Text to normalize
+     * @return The normalized text (the same instance if nothing matched)
+     */
+    public String normalize(String text) {
+        if (size == 0 || text == null) {
+            return text;
+        }
+        int length = text.length();
+        char[] buffer = new char[32];
+        StringBuilder out = null;
+        int copied = 0;
+        int i = 0;
+        while (i < length) {
+            if (text.charAt(i) <= ' ') {
+                i++;
+                continue;
+            }
+            int wordEnd = wordEnd(text, i);
+
+            // Follow the trie word by word, remembering the longest phrase found
+            int matchStart = -1;
+            int matchEnd = -1;
+            int replacement = -1;
+            int node = 0;
+            int start = i;
+            int end = wordEnd;
+            for (int k = 0; k < maxWords; k++) {
+                int coreStart = start;
+                int coreEnd = end;
+                while (coreStart < coreEnd && isLeadingPunctuation(text.charAt(coreStart))) {
+                    coreStart++;
+                }
+                while (coreEnd > coreStart && isTrailingPunctuation(text.charAt(coreEnd - 1))) {
+                    coreEnd--;
+                }
+                if (k == 0) {
+                    matchStart = coreStart;
+                } else if (coreStart > start) {
+                    break;
+                }
+                if (buffer.length < coreEnd - coreStart) {
+                    buffer = new char[Math.max(coreEnd - coreStart, buffer.length * 2)];
+                }
+                node = child(node, lookup(text, coreStart, coreEnd, buffer));
+                if (node < 0) {
+                    break;
+                }
+                if (replacementAt[node] >= 0) {
+                    replacement = replacementAt[node];
+                    matchEnd = coreEnd;
+                }
+                if (coreEnd < end) {
+                    break;
+                }
+                // Continue with the next word on the same line
+                int next = end;
+                while (next < length && text.charAt(next) <= ' ' && text.charAt(next) != '\n') {
+                    next++;
+                }
+                if (next == length || text.charAt(next) == '\n') {
+                    break;
+                }
+                start = next;
+                end = wordEnd(text, next);
+            }
+
+            if (replacement < 0) {
+                i = wordEnd;
+                continue;
+            }
+            if (out == null) {
+                out = new StringBuilder(length + 16);
+            }
+            out.append(text, copied, matchStart)
+                    .append(replacementChars, replacementStarts[replacement],
+                            replacementStarts[replacement + 1] - replacementStarts[replacement]);
+            copied = matchEnd;
+            i = matchEnd;
+        }
+        if (out == null) {
+            return text;
+        }
+        return out.append(text, copied, length).toString();
+    }
+
+    /**
+     * Parse {@code phrase => replacement} lines into an entry map.
+     */
+    static void parse(String content, String source, Map<String, String> entries) {
+        String[] lines = content.split("\n");
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n].strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separator = line.indexOf(SEPARATOR);
+            String phrase = separator < 0 ? "" : String.join(" ", phraseWords(line.substring(0, separator)));
+            if (phrase.isEmpty()) {
+                System.err.println(String.format("Ignoring malformed normalization entry (%s line %d): %s",
+                        source, n + 1, line));
+                continue;
+            }
+            entries.put(phrase, line.substring(separator + SEPARATOR.length()).strip());
+        }
+    }
+
+    /**
+     * Split a phrase into lower-case words without surrounding punctuation.
+     */
+    private static String[] phraseWords(String phrase) {
+        List<String> words = new ArrayList<>();
+        for (String word : phrase.strip().split("\\s+")) {
+            int start = 0;
+            int end = word.length();
+            while (start < end && isLeadingPunctuation(word.charAt(start))) {
+                start++;
+            }
+            while (end > start && isTrailingPunctuation(word.charAt(end - 1))) {
+                end--;
+            }
+            if (end > start) {
+                words.add(word.substring(start, end).toLowerCase(Locale.ROOT));
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Look up a word of the text.
+     *
+     * @return Its id, or -1 if no phrase contains it
+     */
+    private int lookup(String text, int start, int end, char[] buffer) {
+        int length = end - start;
+        if (length == 0) {
+            return -1;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Full Unicode lower-casing can change the length
+                String lower = text.substring(start, end).toLowerCase(Locale.ROOT);
+                if (lower.length() > buffer.length) {
+                    return lookup(lower, 0, lower.length(), new char[lower.length()]);
+                }
+                lower.getChars(0, lower.length(), buffer, 0);
+                length = lower.length();
+                break;
+            }
+            buffer[i - start] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        int mask = wordSlots.length - 1;
+        for (int slot = hash(buffer, 0, length) & mask; wordSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = wordSlots[slot] - 1;
+            if (Arrays.equals(wordChars, wordStarts[id], wordStarts[id + 1], buffer, 0, length)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Follow the edge for a word from a trie node.
+     *
+     * @return The child node, or -1 if there is none
+     */
+    private int child(int node, int word) {
+        if (word < 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(edgeWords, firstEdge[node], firstEdge[node + 1], word);
+        return index >= 0 ? edgeTargets[index] : -1;
+    }
+
+    private void write(Path file, byte[] fingerprint) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES
+                + 2 * (wordChars.length + replacementChars.length)
+                + 4 * (wordStarts.length + wordSlots.length + firstEdge.length + edgeWords.length
+                        + edgeTargets.length + replacementAt.length + replacementStarts.length));
+        buffer.put(MAGIC).put(FORMAT_VERSION).put(fingerprint)
+                .putInt(wordChars.length).putInt(wordStarts.length).putInt(wordSlots.length)
+                .putInt(firstEdge.length).putInt(edgeWords.length).putInt(replacementChars.length)
+                .putInt(replacementStarts.length).putInt(maxWords);
+        putChars(buffer, wordChars);
+        putInts(buffer, wordStarts);
+        putInts(buffer, wordSlots);
+        putInts(buffer, firstEdge);
+        putInts(buffer, edgeWords);
+        putInts(buffer, edgeTargets);
+        putInts(buffer, replacementAt);
+        putChars(buffer, replacementChars);
+        putInts(buffer, replacementStarts);
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a cached dictionary.
+     *
+     * @return The dictionary, or null if it was compiled from other dictionary files
+     * @throws IOException If the cache cannot be read or is corrupt
+     */
+    private static NormalizationDictionary read(Path file, byte[] fingerprint) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            byte[] stored = new byte[fingerprint.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.get() != FORMAT_VERSION) {
+                return null;
+            }
+            buffer.get(stored);
+            if (!Arrays.equals(stored, fingerprint)) {
+                return null;
+            }
+            int wordCharCount = buffer.getInt();
+            int wordStartCount = buffer.getInt();
+            int slotCount = buffer.getInt();
+            int nodeCount = buffer.getInt() - 1;
+            int edgeCount = buffer.getInt();
+            int replacementCharCount = buffer.getInt();
+            int replacementStartCount = buffer.getInt();
+            int maxWords = buffer.getInt();
+            if (wordCharCount < 0 || wordStartCount < 1 || Integer.bitCount(slotCount) != 1 || nodeCount < 1
+                    || edgeCount < 0 || replacementCharCount < 0 || replacementStartCount < 1 || maxWords < 0) {
+                throw new IOException("Corrupt normalization cache");
+            }
+            char[] wordChars = getChars(buffer, wordCharCount);
+            int[] wordStarts = getInts(buffer, wordStartCount);
+            int[] wordSlots = getInts(buffer, slotCount);
+            int[] firstEdge = getInts(buffer, nodeCount + 1);
+            int[] edgeWords = getInts(buffer, edgeCount);
+            int[] edgeTargets = getInts(buffer, edgeCount);
+            int[] replacementAt = getInts(buffer, nodeCount);
+            char[] replacementChars = getChars(buffer, replacementCharCount);
+            int[] replacementStarts = getInts(buffer, replacementStartCount);
+            int words = wordStartCount - 1;
+            int replacements = replacementStartCount - 1;
+            if (buffer.hasRemaining()
+                    || !ascending(wordStarts, wordCharCount) || !ascending(firstEdge, edgeCount)
+                    || !ascending(replacementStarts, replacementCharCount)
+                    || !inRange(wordSlots, 0, words) || !inRange(edgeWords, 0, words - 1)
+                    || !inRange(edgeTargets, 1, nodeCount - 1) || !inRange(replacementAt, -1, replacements - 1)) {
+                throw new IOException("Corrupt normalization cache");
+            }
+            return new NormalizationDictionary(wordChars, wordStarts, wordSlots, firstEdge, edgeWords,
+                    edgeTargets, replacementAt, replacementChars, replacementStarts, maxWords);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated normalization cache", e);
+        }
+    }
+
+    private static byte[] readBundled() {
+        try (InputStream in = NormalizationDictionary.class.getClassLoader()
+                .getResourceAsStream(BUNDLED_DICTIONARY)) {
+            return in != null ? in.readAllBytes() : new byte[0];
+        } catch (IOException e) {
+            System.err.println("Failed to read bundled normalization dictionary: " + e.getMessage());
+            return new byte[0];
+        }
+    }
+
+    private static List<Path> dictionaryFiles(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().endsWith(".txt"))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            System.err.println("Failed to list normalization dictionaries: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Identify the dictionary sources: the bundled content, and each user file's
+     * name, size and modification time.
+     */
+    private static byte[] fingerprint(byte[] bundled, List<Path> files) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bundled);
+            for (Path file : files) {
+                digest.update(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                try {
+                    digest.update(ByteBuffer.allocate(16).putLong(Files.size(file))
+                            .putLong(Files.getLastModifiedTime(file).toMillis()).array());
+                } catch (IOException e) {
+                    // Unreadable now; it will fail to load too and the result is not cached
+                }
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean isLeadingPunctuation(char c) {
+        return c == '(' || c == '[' || c == '{' || c == '"' || c == '\'';
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        switch (c) {
+            case '.', ',', '!', '?', ';', ':', ')', ']', '}', '"', '\'':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int wordEnd(String text, int start) {
+        int end = start;
+        while (end < text.length() && text.charAt(end) > ' ') {
+            end++;
+        }
+        return end;
+    }
+
+    private static int hash(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    private static void putChars(ByteBuffer buffer, char[] values) {
+        buffer.asCharBuffer().put(values);
+        buffer.position(buffer.position() + 2 * values.length);
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        if (count > buffer.remaining() / 4) {
+            throw new BufferUnderflowException();
+        }
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static char[] getChars(ByteBuffer buffer, int count) {
+        if (count > buffer.remaining() / 2) {
+            throw new BufferUnderflowException();
+        }
+        char[] values = new char[count];
+        buffer.asCharBuffer().get(values);
+        buffer.position(buffer.position() + 2 * count);
+        return values;
+    }
+
+    private static boolean ascending(int[] values, int last) {
+        if (values.length == 0 || values[0] != 0 || values[values.length - 1] != last) {
+            return false;
+        }
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] < values[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean inRange(int[] values, int min, int max) {
+        for (int value : values) {
+            if (value < min || value > max) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package com.transcriber.text;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Text that is produced by writing it out, so processing steps (cleaning, applying
+ * a template, saving) can be chained without holding the whole text in memory.
+ * For example, a transcript is cleaned straight into a template and the template
+ * straight into a file with
+ * {@code FileManager.saveTranscription(path, out -> TemplateManager.applyTemplate(
+ * template, text -> TranscriptionCleaner.removeFillerWords(reader, text), context, out))}.
+ */
+@FunctionalInterface
+public interface TextSource {
+
+    /**
+     * Write the text, without closing the writer.
+     */
+    void writeTo(Writer out) throws IOException;
+}
@@ -2,143 +2,666 @@ package com.transcriber.text;
 
 import com.transcriber.config.Config;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Locale;
 
 /**
  * Transcription text cleaning utilities.
+ * <p>
+ * Filler words are matched by a token trie compiled once per filler list: each
+ * space-separated word is normalized (lower case, punctuation removed) into a
+ * reusable buffer, looked up in the table of filler tokens and walked through the
+ * trie, so a transcript is cleaned in one pass with no per-word allocation. The
+ * space, punctuation and blank line clean-up is applied to the output as it is
+ * written. Large texts can be streamed from a reader to a writer a line at a time.
  */
 public class TranscriptionCleaner {
-    
-    private static final Pattern MULTIPLE_SPACES = Pattern.compile(" +");
-    private static final Pattern SPACE_BEFORE_PUNCTUATION = Pattern.compile(" +([.,!?;:])");
-    private static final Pattern MULTIPLE_NEWLINES = Pattern.compile("\n{3,}");
-    
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private static final TranscriptionCleaner DEFAULT = new TranscriptionCleaner(Config.FILLER_WORDS);
+    private static volatile TranscriptionCleaner lastCompiled;
+
+    private final List<String> fillerWords;
+    // Distinct filler tokens, looked up by open addressing on their characters
+    private final String[] tokens;
+    private final int[] tokenSlots;
+    // Trie over token ids: per node, its child edges and the first filler (list
+    // position) ending there, split into the article "a" and all other fillers
+    private final int[][] childTokens;
+    private final int[][] childNodes;
+    private final int[] fillerAt;
+    private final int[] articleAt;
+    private final int maxTokens;
+
+    private TranscriptionCleaner(List<String> fillerWords) {
+        this.fillerWords = List.copyOf(fillerWords);
+
+        List<String> tokenList = new ArrayList<>();
+        List<int[]> paths = new ArrayList<>();
+        int longest = 0;
+        for (String filler : this.fillerWords) {
+            // Split like the text is split, so leading/trailing/double spaces are empty tokens
+            String[] parts = filler.toLowerCase().split(" ", -1);
+            int[] path = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                int id = tokenList.indexOf(parts[i]);
+                if (id < 0) {
+                    id = tokenList.size();
+                    tokenList.add(parts[i]);
+                }
+                path[i] = id;
+            }
+            paths.add(path);
+            longest = Math.max(longest, parts.length);
+        }
+        this.tokens = tokenList.toArray(new String[0]);
+        this.maxTokens = longest;
+        this.tokenSlots = new int[Integer.highestOneBit(Math.max(1, tokens.length) * 4)];
+        for (int id = 0; id < tokens.length; id++) {
+            int slot = hash(tokens[id], 0, tokens[id].length()) & (tokenSlots.length - 1);
+            while (tokenSlots[slot] != 0) {
+                slot = (slot + 1) & (tokenSlots.length - 1);
+            }
+            tokenSlots[slot] = id + 1;
+        }
+
+        List<int[]> edgeTokens = new ArrayList<>();
+        List<int[]> edgeNodes = new ArrayList<>();
+        List<Integer> fillers = new ArrayList<>();
+        List<Integer> articles = new ArrayList<>();
+        edgeTokens.add(new int[0]);
+        edgeNodes.add(new int[0]);
+        fillers.add(NONE);
+        articles.add(NONE);
+        for (int index = 0; index < paths.size(); index++) {
+            int node = 0;
+            for (int id : paths.get(index)) {
+                int child = find(edgeTokens.get(node), id);
+                if (child < 0) {
+                    int created = edgeTokens.size();
+                    edgeTokens.add(new int[0]);
+                    edgeNodes.add(new int[0]);
+                    fillers.add(NONE);
+                    articles.add(NONE);
+                    int[] ids = edgeTokens.get(node);
+                    int[] nodes = edgeNodes.get(node);
+                    edgeTokens.set(node, append(ids, id));
+                    edgeNodes.set(node, append(nodes, created));
+                    node = created;
+                } else {
+                    node = edgeNodes.get(node)[child];
+                }
+            }
+            // "a" is only a filler in some contexts; other fillers always are
+            boolean article = this.fillerWords.get(index).equalsIgnoreCase("a");
+            List<Integer> ends = article ? articles : fillers;
+            ends.set(node, Math.min(ends.get(node), index));
+        }
+        this.childTokens = edgeTokens.toArray(new int[0][]);
+        this.childNodes = edgeNodes.toArray(new int[0][]);
+        this.fillerAt = fillers.stream().mapToInt(Integer::intValue).toArray();
+        this.articleAt = articles.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Compile a cleaner for a filler word list, to clean many texts with the same list.
+     *
+     * @param fillerWords Filler words and phrases (single-space separated), matched case-insensitively
+     */
+    public static TranscriptionCleaner compile(List<String> fillerWords) {
+        return new TranscriptionCleaner(fillerWords);
+    }
+
+    /**
+     * The cleaner for the default filler word list from Config.
+     */
+    public static TranscriptionCleaner defaultCleaner() {
+        return DEFAULT;
+    }
+
     /**
      * Remove filler words from transcription text.
-     * 
+     *
      * @param text The transcription text to clean
      * @param fillerWords Optional list of filler words. If null, uses Config.FILLER_WORDS
      * @return Cleaned text with filler words removed
      */
     public static String removeFillerWords(String text, List<String> fillerWords) {
-        if (fillerWords == null) {
-            fillerWords = Config.FILLER_WORDS;
+        if (fillerWords == null || fillerWords == Config.FILLER_WORDS) {
+            return DEFAULT.clean(text);
+        }
+        TranscriptionCleaner cleaner = lastCompiled;
+        if (cleaner == null || !cleaner.fillerWords.equals(fillerWords)) {
+            cleaner = compile(fillerWords);
+            lastCompiled = cleaner;
         }
-        
+        return cleaner.clean(text);
+    }
+
+    /**
+     * Remove filler words using the default filler word list from Config.
+     */
+    public static String removeFillerWords(String text) {
+        return removeFillerWords(text, null);
+    }
+
+    /**
+     * Stream text through the default filler word list from Config.
+     *
+     * @see #clean(Reader, Writer)
+     */
+    public static void removeFillerWords(Reader in, Writer out) throws IOException {
+        DEFAULT.clean(in, out);
+    }
+
+    /**
+     * Remove this cleaner's filler words from transcription text.
+     * <p>
+     * Each line is split into words at single spaces. A word is a filler when,
+     * lower-cased and with punctuation removed, it (and for phrases the words after
+     * it) equals a filler; if several fillers match, the first in the list wins.
+     * "a" is only removed at the start of a sentence or before another filler, so
+     * that articles are kept. Runs of spaces are then collapsed, spaces before
+     * punctuation removed and more than one blank line reduced to one.
+     *
+     * @param text The transcription text to clean
+     * @return Cleaned text with filler words removed
+     */
+    public String clean(String text) {
         if (text == null || text.trim().isEmpty() || fillerWords.isEmpty()) {
             return text != null ? text : "";
         }
-        
-        String[] lines = text.split("\n");
-        StringBuilder cleanedLines = new StringBuilder();
-        
-        for (String line : lines) {
-            if (line.trim().isEmpty()) {
-                cleanedLines.append(line).append("\n");
-                continue;
+
+        // Trailing empty lines are dropped, as by String.split
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == '\n') {
+            end--;
+        }
+        Scan scan = new Scan(Locale.getDefault());
+        scan.reset(text);
+        Output out = new Output(text.length(), true);
+        for (int lineStart = 0; lineStart < end; ) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > end) {
+                lineEnd = end;
             }
-            
-            String[] words = line.split(" ");
-            StringBuilder cleanedWords = new StringBuilder();
-            
-            int i = 0;
-            while (i < words.length) {
-                String word = words[i];
-                String wordLower = stripPunctuation(word.toLowerCase());
-                String originalWord = words[i];
-                
-                boolean isFiller = false;
-                
-                for (String filler : fillerWords) {
-                    String fillerLower = filler.toLowerCase();
-                    
-                    // Special handling for "a" - only remove if it's standalone and not followed by a noun/article context
-                    if (wordLower.equals("a") && fillerLower.equals("a")) {
-                        boolean isAtStart = i == 0 || cleanedWords.length() == 0;
-                        if (!isAtStart) {
-                            String prevText = cleanedWords.toString().toLowerCase();
-                            isAtStart = prevText.endsWith(".") || prevText.endsWith("!") || prevText.endsWith("?") 
-                                    || prevText.endsWith(";") || prevText.endsWith(":");
-                        }
-                        
-                        boolean nextIsFiller = false;
-                        if (i < words.length - 1) {
-                            String nextWordCheck = stripPunctuation(words[i + 1].toLowerCase());
-                            for (String fw : fillerWords) {
-                                if (!fw.equalsIgnoreCase("a") && nextWordCheck.equals(fw.toLowerCase())) {
-                                    nextIsFiller = true;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        if (isAtStart || nextIsFiller) {
-                            isFiller = true;
-                            break;
-                        }
-                        // Otherwise, keep "a" as it's likely an article
-                        continue;
-                    }
-                    
-                    // Exact match (case-insensitive, ignoring punctuation)
-                    if (wordLower.equals(fillerLower)) {
-                        isFiller = true;
-                        break;
-                    }
-                    
-                    // Check for multi-word fillers (like "you know")
-                    if (fillerLower.contains(" ") && i < words.length - 1) {
-                        String nextWord = stripPunctuation(words[i + 1].toLowerCase());
-                        if ((wordLower + " " + nextWord).equals(fillerLower)) {
-                            isFiller = true;
-                            i++; // Skip next word too
-                            break;
-                        }
+            if (isBlank(text, lineStart, lineEnd)) {
+                out.append(text, lineStart, lineEnd);
+            } else {
+                cleanLine(scan, lineStart, lineEnd, out);
+            }
+            out.append('\n');
+            lineStart = lineEnd + 1;
+        }
+        return out.finish();
+    }
+
+    /**
+     * Stream text through the cleaner, reading and cleaning it a line at a time, so
+     * memory use is bounded by the longest line rather than the text. The output is
+     * the same as {@link #clean(String)} would return for the whole text, except that
+     * input consisting only of whitespace produces no output. Neither stream is closed.
+     *
+     * @param in Text to clean
+     * @param out Receives the cleaned text
+     * @throws IOException If reading or writing fails
+     */
+    public void clean(Reader in, Writer out) throws IOException {
+        if (fillerWords.isEmpty()) {
+            in.transferTo(out);
+            return;
+        }
+        Scan scan = new Scan(Locale.getDefault());
+        Output output = new Output(out);
+        StringBuilder line = new StringBuilder();
+        char[] chunk = new char[Output.FLUSH_CHARS];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            int from = 0;
+            for (int i = 0; i < read; i++) {
+                if (chunk[i] == '\n') {
+                    line.append(chunk, from, i - from);
+                    cleanStreamedLine(scan, line.toString(), output);
+                    line.setLength(0);
+                    from = i + 1;
+                }
+            }
+            line.append(chunk, from, read - from);
+        }
+        if (line.length() > 0) {
+            cleanStreamedLine(scan, line.toString(), output);
+        }
+        output.finishStream();
+    }
+
+    private void cleanStreamedLine(Scan scan, String line, Output out) throws IOException {
+        if (isBlank(line, 0, line.length())) {
+            out.append(line, 0, line.length());
+        } else {
+            scan.reset(line);
+            cleanLine(scan, 0, line.length(), out);
+        }
+        out.append('\n');
+        out.drain();
+    }
+
+    /**
+     * Clean one paragraph (a line, without line breaks) the way {@link #clean} cleans
+     * it as part of a longer text. The ends are not trimmed and blank lines are not
+     * collapsed, as those depend on the surrounding text.
+     *
+     * @param paragraph The paragraph to clean
+     * @return The cleaned paragraph
+     */
+    public String cleanParagraph(String paragraph) {
+        if (fillerWords.isEmpty()) {
+            return paragraph;
+        }
+        Output out = new Output(paragraph.length(), false);
+        if (isBlank(paragraph, 0, paragraph.length())) {
+            out.append(paragraph, 0, paragraph.length());
+        } else {
+            Scan scan = new Scan(Locale.getDefault());
+            scan.reset(paragraph);
+            cleanLine(scan, 0, paragraph.length(), out);
+        }
+        return out.finish();
+    }
+
+    /**
+     * Whether this cleaner removes anything; with no filler words text is left as is.
+     */
+    boolean hasFillers() {
+        return !fillerWords.isEmpty();
+    }
+
+    /**
+     * Remove fillers from one non-blank line.
+     */
+    private void cleanLine(Scan scan, int lineStart, int lineEnd, Output out) {
+        String text = scan.text;
+        // Trailing spaces are dropped, as by String.split
+        while (lineEnd > lineStart && text.charAt(lineEnd - 1) == ' ') {
+            lineEnd--;
+        }
+        int count = scan.tokenize(lineStart, lineEnd);
+
+        int lineLength = 0;
+        char lineLast = 0;
+        int i = 0;
+        while (i < count) {
+            // Walk the trie from this word, keeping the first listed filler that matches
+            int best = NONE;
+            int bestLength = 0;
+            int node = 0;
+            for (int k = 0; i + k < count && k < maxTokens; k++) {
+                int id = scan.tokenId(i + k, this);
+                int child = id < 0 ? -1 : find(childTokens[node], id);
+                if (child < 0) {
+                    break;
+                }
+                node = childNodes[node][child];
+                if (fillerAt[node] < best) {
+                    best = fillerAt[node];
+                    bestLength = k + 1;
+                }
+                if (k == 0 && articleAt[node] < best) {
+                    boolean atStart = i == 0 || lineLength == 0 || lineLast == '.' || lineLast == '!'
+                            || lineLast == '?' || lineLast == ';' || lineLast == ':';
+                    if (atStart || (i + 1 < count && isSingleFiller(scan.tokenId(i + 1, this)))) {
+                        best = articleAt[node];
+                        bestLength = 1;
                     }
                 }
-                
-                if (!isFiller) {
-                    if (cleanedWords.length() > 0) {
-                        cleanedWords.append(" ");
+            }
+
+            if (best != NONE) {
+                i += bestLength;
+                continue;
+            }
+            int start = scan.starts[i];
+            int wordEnd = scan.ends[i];
+            if (lineLength > 0) {
+                out.append(' ');
+                lineLength++;
+                lineLast = ' ';
+            }
+            if (wordEnd > start) {
+                out.appendWord(text, start, wordEnd);
+                lineLength += wordEnd - start;
+                lineLast = text.charAt(wordEnd - 1);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Whether a token on its own is a filler other than "a".
+     */
+    private boolean isSingleFiller(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int child = find(childTokens[0], id);
+        return child >= 0 && fillerAt[childNodes[0][child]] != NONE;
+    }
+
+    /**
+     * Look up a normalized token.
+     *
+     * @return Its id, or -1 if no filler contains it
+     */
+    private int lookup(char[] chars, int length) {
+        int mask = tokenSlots.length - 1;
+        for (int slot = hash(chars, length) & mask; tokenSlots[slot] != 0; slot = (slot + 1) & mask) {
+            String token = tokens[tokenSlots[slot] - 1];
+            if (token.length() == length && equals(token, chars, length)) {
+                return tokenSlots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The words of the line being cleaned, with their normalized token ids computed on
+     * first use (a word may be looked at as part of several candidate phrases).
+     */
+    private static final class Scan {
+        private static final int UNKNOWN = -2;
+
+        // Locales whose lower-casing rules differ from the per-character fast path
+        private final boolean specialCasing;
+        private final Locale locale;
+        private String text;
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int[] ids = new int[64];
+        private char[] buffer = new char[32];
+
+        Scan(Locale locale) {
+            this.locale = locale;
+            String language = locale.getLanguage();
+            this.specialCasing = language.equals("tr") || language.equals("az") || language.equals("lt");
+        }
+
+        /**
+         * Start scanning another text.
+         */
+        void reset(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Split a line at single spaces (consecutive spaces give empty words).
+         *
+         * @return The number of words
+         */
+        int tokenize(int start, int end) {
+            int count = 0;
+            int wordStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || text.charAt(i) == ' ') {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        ends = Arrays.copyOf(ends, count * 2);
+                        ids = Arrays.copyOf(ids, count * 2);
                     }
-                    cleanedWords.append(originalWord);
+                    starts[count] = wordStart;
+                    ends[count] = i;
+                    ids[count] = UNKNOWN;
+                    count++;
+                    wordStart = i + 1;
+                }
+            }
+            return count;
+        }
+
+        int tokenId(int index, TranscriptionCleaner cleaner) {
+            if (ids[index] == UNKNOWN) {
+                // Normalize first: it may replace the buffer
+                int length = normalize(starts[index], ends[index]);
+                ids[index] = cleaner.lookup(buffer, length);
+            }
+            return ids[index];
+        }
+
+        /**
+         * Lower-case a word into the buffer, dropping punctuation and whitespace and
+         * trimming control characters from the ends.
+         *
+         * @return The normalized length
+         */
+        private int normalize(int start, int end) {
+            CharSequence word = text;
+            for (int i = start; i < end; i++) {
+                if (text.charAt(i) >= 0x80 || specialCasing) {
+                    // Full Unicode lower-casing can change the length; take the slow path
+                    word = text.substring(start, end).toLowerCase(locale);
+                    start = 0;
+                    end = word.length();
+                    break;
+                }
+            }
+            if (buffer.length < end - start) {
+                buffer = new char[Math.max(end - start, buffer.length * 2)];
+            }
+            int length = 0;
+            for (int i = start; i < end; i++) {
+                char c = word.charAt(i);
+                if (c >= 'A' && c <= 'Z' && word == text) {
+                    c = (char) (c + ('a' - 'A'));
+                }
+                if (!isStripped(c)) {
+                    buffer[length++] = c;
                 }
-                
-                i++;
-            }
-            
-            if (cleanedWords.length() > 0) {
-                cleanedLines.append(cleanedWords);
-            }
-            cleanedLines.append("\n");
-        }
-        
-        String result = cleanedLines.toString();
-        
-        // Clean up multiple spaces
-        result = MULTIPLE_SPACES.matcher(result).replaceAll(" ");
-        // Clean up spaces before punctuation
-        result = SPACE_BEFORE_PUNCTUATION.matcher(result).replaceAll("$1");
-        // Clean up multiple newlines (keep at most 2)
-        result = MULTIPLE_NEWLINES.matcher(result).replaceAll("\n\n");
-        
-        return result.trim();
-    }
-    
+            }
+            int from = 0;
+            while (from < length && buffer[from] <= ' ') {
+                from++;
+            }
+            while (length > from && buffer[length - 1] <= ' ') {
+                length--;
+            }
+            if (from > 0) {
+                System.arraycopy(buffer, from, buffer, 0, length - from);
+            }
+            return length - from;
+        }
+    }
+
     /**
-     * Remove filler words using the default filler word list from Config.
+     * Builds the cleaned text, collapsing runs of spaces, removing spaces before
+     * punctuation, keeping at most one blank line and (optionally) trimming the ends.
+     * With a writer, text is passed on in chunks as it is built; trailing whitespace
+     * is held back until more text follows it.
      */
-    public static String removeFillerWords(String text) {
-        return removeFillerWords(text, null);
+    private static final class Output {
+        static final int FLUSH_CHARS = 8192;
+
+        private final StringBuilder text;
+        private final Writer sink;
+        private final boolean trim;
+        // Length of the text up to and including its last non-whitespace character
+        private int contentEnd;
+        private boolean started;
+        private boolean pendingSpace;
+        private int pendingNewlines;
+
+        Output(int capacity, boolean trim) {
+            this.text = new StringBuilder(capacity);
+            this.sink = null;
+            this.trim = trim;
+        }
+
+        Output(Writer sink) {
+            this.text = new StringBuilder(2 * FLUSH_CHARS);
+            this.sink = sink;
+            this.trim = true;
+        }
+
+        void append(CharSequence chars, int start, int end) {
+            for (int i = start; i < end; i++) {
+                append(chars.charAt(i));
+            }
+        }
+
+        /**
+         * Append a word (no spaces or line breaks): only its first character can be
+         * affected by the pending clean-up, the rest is copied as is.
+         */
+        void appendWord(String chars, int start, int end) {
+            append(chars.charAt(start));
+            if (!started) {
+                append(chars, start + 1, end);
+                return;
+            }
+            text.append(chars, start + 1, end);
+            int last = text.length();
+            while (last > contentEnd && text.charAt(last - 1) <= ' ') {
+                last--;
+            }
+            contentEnd = last;
+        }
+
+        void append(char c) {
+            if (c == '\n') {
+                if (pendingSpace) {
+                    write(' ');
+                    pendingSpace = false;
+                }
+                pendingNewlines++;
+                return;
+            }
+            if (pendingNewlines > 0) {
+                for (int i = Math.min(pendingNewlines, 2); i > 0; i--) {
+                    write('\n');
+                }
+                pendingNewlines = 0;
+            }
+            if (c == ' ') {
+                pendingSpace = true;
+                return;
+            }
+            if (pendingSpace && !isSentencePunctuation(c)) {
+                write(' ');
+            }
+            pendingSpace = false;
+            write(c);
+        }
+
+        private void write(char c) {
+            if (c > ' ') {
+                text.append(c);
+                contentEnd = text.length();
+                started = true;
+            } else if (started || !trim) {
+                // Leading whitespace and control characters are trimmed
+                text.append(c);
+            }
+        }
+
+        /**
+         * Pass the text built so far on to the writer, once there is enough of it.
+         */
+        void drain() throws IOException {
+            if (sink != null && contentEnd >= FLUSH_CHARS) {
+                sink.append(text, 0, contentEnd);
+                text.delete(0, contentEnd);
+                contentEnd = 0;
+            }
+        }
+
+        String finish() {
+            if (!trim) {
+                if (pendingSpace) {
+                    write(' ');
+                }
+                return text.toString();
+            }
+            // Trailing whitespace and control characters are trimmed
+            text.setLength(contentEnd);
+            return text.toString();
+        }
+
+        /**
+         * Write the rest of the text to the writer, without trailing whitespace.
+         */
+        void finishStream() throws IOException {
+            sink.append(text, 0, contentEnd);
+            text.setLength(0);
+            contentEnd = 0;
+        }
+    }
+
+    private static boolean isSentencePunctuation(char c) {
+        return c == '.' || c == ',' || c == '!' || c == '?' || c == ';' || c == ':';
     }
-    
+
     /**
-     * Strip punctuation from a word for comparison purposes.
+     * Characters ignored when comparing a word with the fillers.
      */
-    private static String stripPunctuation(String word) {
-        return word.replaceAll("[.,!?;:()\\[\\]{}'\"\\s]+", "").trim();
+    private static boolean isStripped(char c) {
+        switch (c) {
+            case '.', ',', '!', '?', ';', ':', '(', ')', '[', ']', '{', '}', '\'', '"',
+                    ' ', '\t', '\n', '\u000B', '\f', '\r':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
     }
-}
 
+    private static int hash(CharSequence chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
 
+    private static int hash(char[] chars, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(String token, char[] chars, int length) {
+        for (int i = 0; i < length; i++) {
+            if (token.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int find(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] grown = Arrays.copyOf(array, array.length + 1);
+        grown[array.length] = value;
+        return grown;
+    }
+}